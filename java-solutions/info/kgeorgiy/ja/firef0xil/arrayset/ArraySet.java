@@ -1,8 +1,11 @@
 package info.kgeorgiy.ja.firef0xil.arrayset;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
+    private final static int PARALLEL_SORT_THRESHOLD = 1 << 16;
+
     private final Comparator<? super T> comparator;
     private final SetArray<T> data;
 
@@ -20,32 +23,217 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
 
     public ArraySet(Collection<? extends T> collection, Comparator<? super T> comparator) {
         this.comparator = comparator;
-        ArrayList<T> tmp = new ArrayList<>(collection.size());
-        tmp.addAll(collection);
-        tmp.sort(comparator);
-        int j = 1;
-        for (int i = 1; i < tmp.size(); i++) {
-            T prev = tmp.get(i - 1);
-            T cur = tmp.get(i);
-            if (compareElements(prev, cur) != 0) {
-                tmp.set(j++, cur);
+        data = SetArray.of(sortedDistinct(collection, comparator), comparator);
+    }
+
+    // Sorted sets with the same comparator are taken as is, sorted input is only deduplicated
+    @SuppressWarnings("unchecked")
+    private static <T> T[] sortedDistinct(Collection<? extends T> collection, Comparator<? super T> comparator) {
+        T[] elements = (T[]) collection.toArray();
+        if (collection instanceof SortedSet<?> sorted && Objects.equals(sorted.comparator(), comparator)) {
+            return elements;
+        }
+        boolean distinct = true;
+        for (int i = 1; i < elements.length; i++) {
+            int order = compare(comparator, elements[i - 1], elements[i]);
+            if (order > 0) {
+                if (elements.length >= PARALLEL_SORT_THRESHOLD) {
+                    Arrays.parallelSort(elements, comparator);
+                } else {
+                    Arrays.sort(elements, comparator);
+                }
+                distinct = false;
+                break;
+            } else if (order == 0) {
+                distinct = false;
             }
         }
-        if (tmp.size() > j) {
-            tmp.subList(j, tmp.size()).clear();
+        if (distinct) {
+            return elements;
+        }
+        int size = Math.min(elements.length, 1);
+        for (int i = 1; i < elements.length; i++) {
+            if (compare(comparator, elements[size - 1], elements[i]) != 0) {
+                elements[size++] = elements[i];
+            }
         }
-        tmp.trimToSize();
-        data = new SetArray<>(tmp, false);
+        return size == elements.length ? elements : Arrays.copyOf(elements, size);
     }
 
-    private ArraySet(List<T> list, Comparator<? super T> comparator, boolean reverse) {
-        data = new SetArray<>(list, reverse);
+    @SuppressWarnings("unchecked")
+    private static <T> int compare(Comparator<? super T> comparator, T first, T second) {
+        return comparator == null
+                ? ((Comparable<? super T>) first).compareTo(second)
+                : comparator.compare(first, second);
+    }
+
+    private ArraySet(SetArray<T> data, Comparator<? super T> comparator) {
+        this.data = data;
         this.comparator = comparator;
     }
 
-    private ArraySet(SetArray<T> setArray, Comparator<? super T> comparator) {
-        data = new SetArray<>(setArray);
-        this.comparator = Collections.reverseOrder(comparator);
+    private enum Operation {
+        UNION, INTERSECTION, DIFFERENCE
+    }
+
+    public static <T> ArraySet<T> union(ArraySet<T> first, ArraySet<T> second) {
+        return merge(first, second, Operation.UNION);
+    }
+
+    public static <T> ArraySet<T> intersection(ArraySet<T> first, ArraySet<T> second) {
+        return merge(first, second, Operation.INTERSECTION);
+    }
+
+    public static <T> ArraySet<T> difference(ArraySet<T> first, ArraySet<T> second) {
+        return merge(first, second, Operation.DIFFERENCE);
+    }
+
+    public static <T> int unionSize(ArraySet<T> first, ArraySet<T> second) {
+        return merge(first, second, Operation.UNION, null);
+    }
+
+    public static <T> int intersectionSize(ArraySet<T> first, ArraySet<T> second) {
+        return merge(first, second, Operation.INTERSECTION, null);
+    }
+
+    public static <T> int differenceSize(ArraySet<T> first, ArraySet<T> second) {
+        return merge(first, second, Operation.DIFFERENCE, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> ArraySet<T> merge(ArraySet<T> first, ArraySet<T> second, Operation operation) {
+        T[] elements = (T[]) new Object[switch (operation) {
+            case UNION -> first.size() + second.size();
+            case INTERSECTION -> Math.min(first.size(), second.size());
+            case DIFFERENCE -> first.size();
+        }];
+        int size = merge(first, second, operation, elements);
+        return new ArraySet<>(
+                SetArray.of(size == elements.length ? elements : Arrays.copyOf(elements, size), first.comparator),
+                first.comparator
+        );
+    }
+
+    // Both sides are skipped by galloping, so runs present in one set only cost O(log(run)) comparisons
+    private static <T> int merge(ArraySet<T> first, ArraySet<T> second, Operation operation, T[] result) {
+        if (!Objects.equals(first.comparator, second.comparator)) {
+            throw new IllegalArgumentException("Sets have different comparators");
+        }
+        Comparator<? super T> comparator = first.comparator;
+        SetArray<T> a = first.data;
+        SetArray<T> b = second.data;
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < a.size() && j < b.size()) {
+            int k = gallop(a, i, b.get(j), comparator);
+            if (operation != Operation.INTERSECTION) {
+                size = copy(a, i, k, result, size);
+            }
+            i = k;
+            if (i == a.size()) {
+                break;
+            }
+            k = gallop(b, j, a.get(i), comparator);
+            if (operation == Operation.UNION) {
+                size = copy(b, j, k, result, size);
+            }
+            j = k;
+            if (j < b.size() && compare(comparator, a.get(i), b.get(j)) == 0) {
+                if (operation != Operation.DIFFERENCE) {
+                    size = copy(a, i, i + 1, result, size);
+                }
+                i++;
+                j++;
+            }
+        }
+        if (operation != Operation.INTERSECTION) {
+            size = copy(a, i, a.size(), result, size);
+        }
+        if (operation == Operation.UNION) {
+            size = copy(b, j, b.size(), result, size);
+        }
+        return size;
+    }
+
+    private static <T> int copy(SetArray<T> source, int from, int to, T[] result, int size) {
+        if (result != null) {
+            for (int i = from; i < to; i++) {
+                result[size + i - from] = source.get(i);
+            }
+        }
+        return size + to - from;
+    }
+
+    // First index in [start, size) with element not less than key
+    private static <T> int gallop(SetArray<T> data, int start, T key, Comparator<? super T> comparator) {
+        if (start >= data.size() || compare(comparator, data.get(start), key) >= 0) {
+            return start;
+        }
+        int low = start;
+        int high = start + 1;
+        for (int step = 1; high < data.size() && compare(comparator, data.get(high), key) < 0; step <<= 1) {
+            low = high;
+            high = start + 2 * step;
+        }
+        high = Math.min(high, data.size());
+        while (low + 1 < high) {
+            int middle = (low + high) >>> 1;
+            if (compare(comparator, data.get(middle), key) < 0) {
+                low = middle;
+            } else {
+                high = middle;
+            }
+        }
+        return high;
+    }
+
+    public int rank(T t) {
+        return ceilingGet(t);
+    }
+
+    public T select(int index) {
+        Objects.checkIndex(index, size());
+        return data.get(index);
+    }
+
+    public int countInRange(T fromElement, T toElement) {
+        return countInRange(fromElement, true, toElement, false);
+    }
+
+    public int countInRange(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+        if (compareElements(fromElement, toElement) > 0) {
+            throw new IllegalArgumentException();
+        }
+        int fromIndex = fromInclusive ? ceilingGet(fromElement) : higherGet(fromElement);
+        int toIndex = toInclusive ? higherGet(toElement) : ceilingGet(toElement);
+        return Math.max(toIndex - fromIndex, 0);
+    }
+
+    // Probes must be sorted in the order of this set, each answer gallops from the previous one
+    public int[] ranks(List<? extends T> probes) {
+        int[] result = new int[probes.size()];
+        int position = 0;
+        T previous = null;
+        for (int i = 0; i < result.length; i++) {
+            T probe = probes.get(i);
+            if (i > 0 && compareElements(previous, probe) > 0) {
+                throw new IllegalArgumentException("Probes are not sorted");
+            }
+            position = gallop(data, position, probe, comparator);
+            result[i] = position;
+            previous = probe;
+        }
+        return result;
+    }
+
+    public boolean[] containsEach(List<? extends T> probes) {
+        int[] ranks = ranks(probes);
+        boolean[] result = new boolean[ranks.length];
+        for (int i = 0; i < ranks.length; i++) {
+            result[i] = ranks[i] < size() && compareElements(data.get(ranks[i]), probes.get(i)) == 0;
+        }
+        return result;
     }
 
     @Override
@@ -99,7 +287,7 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
     }
 
     private int get(T t) {
-        return Collections.binarySearch(data, t, comparator);
+        return data.search(t);
     }
 
 
@@ -127,8 +315,13 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
     }
 
     @Override
-    public NavigableSet<T> descendingSet() {
-        return new ArraySet<>(data, comparator);
+    public Spliterator<T> spliterator() {
+        return new SetSpliterator<>(data, 0, data.size(), comparator);
+    }
+
+    @Override
+    public ArraySet<T> descendingSet() {
+        return new ArraySet<>(data.reversed(), Collections.reverseOrder(comparator));
     }
 
     @Override
@@ -137,19 +330,11 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
     }
 
     private int compareElements(T fromElement, T toElement) {
-        List<T> first = Arrays.asList(fromElement, toElement);
-        List<T> second = Arrays.asList(toElement, fromElement);
-        first.sort(comparator);
-        second.sort(comparator);
-        if (first.equals(second)) {
-            return first.get(0) == fromElement ? -1 : 1;
-        } else {
-            return 0;
-        }
+        return compare(comparator, fromElement, toElement);
     }
 
     @Override
-    public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+    public ArraySet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
         if (compareElements(fromElement, toElement) > 0) {
             throw new IllegalArgumentException();
         }
@@ -158,17 +343,17 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
         if (fromIndex > toIndex || fromIndex == -1 || toIndex == -1){
             return new ArraySet<>(comparator);
         }
-        return new ArraySet<>(data.subList(fromIndex, toIndex + 1), comparator, data.reverse);
+        return new ArraySet<>(data.view(fromIndex, toIndex + 1), comparator);
     }
 
-    private NavigableSet<T> getHeadTail(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+    private ArraySet<T> getHeadTail(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
         return compareElements(fromElement, toElement) > 0 ?
                 new ArraySet<>(comparator) :
                 subSet(fromElement, fromInclusive, toElement, toInclusive);
     }
 
     @Override
-    public NavigableSet<T> headSet(T toElement, boolean inclusive) {
+    public ArraySet<T> headSet(T toElement, boolean inclusive) {
         if (!isEmpty()) {
             T fromElement = first();
             return getHeadTail(fromElement, true, toElement, inclusive);
@@ -178,7 +363,7 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
     }
 
     @Override
-    public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
+    public ArraySet<T> tailSet(T fromElement, boolean inclusive) {
         if (!isEmpty()) {
             T toElement = last();
             return getHeadTail(fromElement, inclusive, toElement, true);
@@ -193,17 +378,17 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
     }
 
     @Override
-    public SortedSet<T> subSet(T fromElement, T toElement) {
+    public ArraySet<T> subSet(T fromElement, T toElement) {
         return subSet(fromElement, true, toElement, false);
     }
 
     @Override
-    public SortedSet<T> headSet(T toElement) {
+    public ArraySet<T> headSet(T toElement) {
         return headSet(toElement, false);
     }
 
     @Override
-    public SortedSet<T> tailSet(T fromElement) {
+    public ArraySet<T> tailSet(T fromElement) {
         return tailSet(fromElement, true);
     }
 
@@ -228,30 +413,126 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
         if (isEmpty()) throw new NoSuchElementException();
     }
 
+    // Range [from, to) of the original array, so views of views never nest
     private static class SetArray<T> extends AbstractList<T> implements RandomAccess {
-        private final List<T> data;
+        private final T[] data;
+        private final int from;
+        private final int to;
         private final boolean reverse;
+        private final Comparator<? super T> comparator;
 
-        public SetArray(SetArray<T> setArray) {
-            data = setArray.data;
-            this.reverse = !setArray.reverse;
-        }
-
-        public SetArray(List<T> data, boolean reverse) {
+        public SetArray(T[] data, int from, int to, boolean reverse, Comparator<? super T> comparator) {
             this.data = data;
+            this.from = from;
+            this.to = to;
             this.reverse = reverse;
+            this.comparator = comparator;
+        }
+
+        public static <T> SetArray<T> of(T[] data, Comparator<? super T> comparator) {
+            return new SetArray<>(data, 0, data.length, false, comparator);
+        }
+
+        public SetArray<T> reversed() {
+            return new SetArray<>(data, from, to, !reverse, comparator);
+        }
+
+        public SetArray<T> view(int fromIndex, int toIndex) {
+            return reverse
+                    ? new SetArray<>(data, to - toIndex, to - fromIndex, true, comparator)
+                    : new SetArray<>(data, from + fromIndex, from + toIndex, false, comparator);
+        }
+
+        // Same result as Collections.binarySearch over this view, searched in the ascending range of the array
+        public int search(T key) {
+            int pos = Arrays.binarySearch(data, from, to, key, comparator);
+            if (pos >= 0) {
+                return reverse ? to - 1 - pos : pos - from;
+            }
+            int insertion = -pos - 1;
+            return -(reverse ? to - insertion : insertion - from) - 1;
         }
 
         @Override
         public int size() {
-            return data.size();
+            return to - from;
         }
 
         @Override
         public T get(int index) {
-            return reverse ? data.get(data.size() - 1 - index) : data.get(index);
+            Objects.checkIndex(index, to - from);
+            return reverse ? data[to - 1 - index] : data[from + index];
+        }
+
+    }
+
+    private static class SetSpliterator<T> implements Spliterator<T> {
+        private final static int CHARACTERISTICS = ORDERED | SORTED | DISTINCT | SIZED | SUBSIZED | IMMUTABLE;
+
+        private final SetArray<T> data;
+        private final Comparator<? super T> comparator;
+        private int index;
+        private final int fence;
+
+        public SetSpliterator(SetArray<T> data, int index, int fence, Comparator<? super T> comparator) {
+            this.data = data;
+            this.index = index;
+            this.fence = fence;
+            this.comparator = comparator;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            Objects.requireNonNull(action);
+            if (index < fence) {
+                action.accept(data.get(index++));
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            Objects.requireNonNull(action);
+            T[] array = data.data;
+            int first = index;
+            index = fence;
+            if (data.reverse) {
+                for (int i = data.to - 1 - first, end = data.to - 1 - fence; i > end; i--) {
+                    action.accept(array[i]);
+                }
+            } else {
+                for (int i = data.from + first, end = data.from + fence; i < end; i++) {
+                    action.accept(array[i]);
+                }
+            }
         }
 
+        @Override
+        public Spliterator<T> trySplit() {
+            int middle = (index + fence) >>> 1;
+            if (middle <= index) {
+                return null;
+            }
+            Spliterator<T> prefix = new SetSpliterator<>(data, index, middle, comparator);
+            index = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return CHARACTERISTICS;
+        }
+
+        @Override
+        public Comparator<? super T> getComparator() {
+            return comparator;
+        }
     }
 
     private static class SetIterator<T> implements Iterator<T> {
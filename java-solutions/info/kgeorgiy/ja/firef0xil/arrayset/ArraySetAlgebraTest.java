@@ -0,0 +1,83 @@
+package info.kgeorgiy.ja.firef0xil.arrayset;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ArraySetAlgebraTest {
+    private final static int ITERATIONS = 2000;
+
+    private final Random random = new Random(8045702385702345702L);
+
+    private List<Integer> randomList(int size, int range) {
+        List<Integer> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(random.nextInt(range));
+        }
+        return result;
+    }
+
+    private static <T> void assertSet(Collection<T> expected, ArraySet<T> actual) {
+        assertEquals(new ArrayList<>(expected), new ArrayList<>(actual));
+    }
+
+    private void test(boolean descending) {
+        for (int i = 0; i < ITERATIONS; i++) {
+            int range = 1 + random.nextInt(200);
+            List<Integer> first = randomList(random.nextInt(i % 3 == 0 ? 3 : 100), range);
+            List<Integer> second = randomList(random.nextInt(100), range);
+
+            NavigableSet<Integer> union = new TreeSet<>(first);
+            union.addAll(second);
+            NavigableSet<Integer> intersection = new TreeSet<>(first);
+            intersection.retainAll(second);
+            NavigableSet<Integer> difference = new TreeSet<>(first);
+            difference.removeAll(second);
+
+            ArraySet<Integer> a = new ArraySet<>(first);
+            ArraySet<Integer> b = new ArraySet<>(second);
+            if (descending) {
+                a = a.descendingSet();
+                b = b.descendingSet();
+                union = union.descendingSet();
+                intersection = intersection.descendingSet();
+                difference = difference.descendingSet();
+            }
+
+            assertSet(union, ArraySet.union(a, b));
+            assertSet(intersection, ArraySet.intersection(a, b));
+            assertSet(difference, ArraySet.difference(a, b));
+            assertEquals(union.size(), ArraySet.unionSize(a, b));
+            assertEquals(intersection.size(), ArraySet.intersectionSize(a, b));
+            assertEquals(difference.size(), ArraySet.differenceSize(a, b));
+            assertEquals(union.descendingSet(), ArraySet.union(a, b).descendingSet());
+        }
+    }
+
+    @Test
+    public void test1_ascending() {
+        test(false);
+    }
+
+    @Test
+    public void test2_descending() {
+        test(true);
+    }
+
+    @Test
+    public void test3_views() {
+        ArraySet<Integer> set = new ArraySet<>(List.of(1, 2, 3, 4, 5, 6, 7, 8));
+        ArraySet<Integer> odd = new ArraySet<>(List.of(1, 3, 5, 7, 9));
+        ArraySet<Integer> middle = set.subSet(3, true, 7, false);
+        assertSet(List.of(1, 3, 4, 5, 6, 7, 9), ArraySet.union(middle, odd));
+        assertSet(List.of(3, 5), ArraySet.intersection(middle, odd));
+        assertSet(List.of(4, 6), ArraySet.difference(middle, odd));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test4_differentOrders() {
+        ArraySet.union(new ArraySet<Integer>(), new ArraySet<>(Comparator.<Integer>reverseOrder()));
+    }
+}
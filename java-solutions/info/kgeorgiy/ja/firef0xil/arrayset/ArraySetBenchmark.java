@@ -0,0 +1,190 @@
+package info.kgeorgiy.ja.firef0xil.arrayset;
+
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.IntStream;
+
+public class ArraySetBenchmark {
+    private final static int[] DEFAULT_SIZES = {100_000, 1_000_000, 10_000_000, 30_000_000};
+    private final static int[] INDEX_SIZES = {10_000, 100_000, 1_000_000, 10_000_000, 30_000_000};
+    private final static int LOOKUPS = 5_000_000;
+    private final static int ROUNDS = 5;
+    private final static int STRING_LOOKUPS = 500_000;
+    private final static String[] SECTIONS = {"assets", "catalog", "docs", "images", "news", "static", "users"};
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static <S> S measure(String name, int size, Supplier<S> factory, ToLongFunction<S> lookups) {
+        return measure(name, size, LOOKUPS, factory, lookups);
+    }
+
+    private static <S> S measure(String name, int size, int count, Supplier<S> factory, ToLongFunction<S> lookups) {
+        long before = usedMemory();
+        long start = System.nanoTime();
+        S set = factory.get();
+        long built = System.nanoTime() - start;
+        long memory = usedMemory() - before;
+        double best = 0;
+        long checksum = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            start = System.nanoTime();
+            checksum += lookups.applyAsLong(set);
+            long elapsed = Math.max(System.nanoTime() - start, 1);
+            best = Math.max(best, count * 1e3 / elapsed);
+        }
+        System.out.printf("%-15s %,12d elements: %6.1f bytes/element, built in %5d ms, %7.2f M lookups/s (%d)%n",
+                name, size, (double) memory / size, built / 1_000_000, best, checksum % 10);
+        return set;
+    }
+
+    private static String url(int index) {
+        return "https://www.example.com/" + SECTIONS[index % SECTIONS.length] + "/" + index / 1000 + "/page-" + index + ".html";
+    }
+
+    private static List<String> urls(int size) {
+        return IntStream.range(0, size).mapToObj(ArraySetBenchmark::url).toList();
+    }
+
+    private static <S extends NavigableSet<String>> ToLongFunction<S> stringLookups(String[] keys) {
+        return set -> {
+            long sum = 0;
+            for (int i = 0; i < STRING_LOOKUPS; i++) {
+                String value = set.ceiling(keys[i % keys.length]);
+                sum += value == null ? 0 : value.length();
+            }
+            return sum;
+        };
+    }
+
+    private static long iterate(Iterable<String> strings) {
+        long sum = 0;
+        for (String string : strings) {
+            sum += string.length();
+        }
+        return sum;
+    }
+
+    // Primitive sets of at least 65536 elements search their index instead of the array
+    private static void index(int[] sizes) {
+        for (int size : sizes) {
+            Random random = new Random(size);
+            int[] ints = random.ints(size).toArray();
+            int[] intKeys = random.ints(LOOKUPS).toArray();
+            long[] longs = random.longs(size).toArray();
+            long[] longKeys = random.longs(LOOKUPS).toArray();
+
+            measure("int search", size, () -> Arrays.stream(ints).sorted().distinct().toArray(), array -> {
+                long sum = 0;
+                for (int key : intKeys) {
+                    int pos = Arrays.binarySearch(array, key);
+                    int index = pos >= 0 ? pos : -pos - 1;
+                    sum += index < array.length ? array[index] : 0;
+                }
+                return sum;
+            });
+            measure("IntArraySet", size, () -> new IntArraySet(ints), set -> {
+                long sum = 0;
+                for (int key : intKeys) {
+                    sum += set.ceiling(key, 0);
+                }
+                return sum;
+            });
+            measure("long search", size, () -> Arrays.stream(longs).sorted().distinct().toArray(), array -> {
+                long sum = 0;
+                for (long key : longKeys) {
+                    int pos = Arrays.binarySearch(array, key);
+                    int index = pos >= 0 ? pos : -pos - 1;
+                    sum += index < array.length ? array[index] : 0;
+                }
+                return sum;
+            });
+            measure("LongArraySet", size, () -> new LongArraySet(longs), set -> {
+                long sum = 0;
+                for (long key : longKeys) {
+                    sum += set.ceiling(key, 0);
+                }
+                return sum;
+            });
+        }
+    }
+
+    private static int[] sizes(String[] args, int from, int[] defaults) {
+        return args.length == from
+                ? defaults
+                : Arrays.stream(args, from, args.length).mapToInt(Integer::parseInt).toArray();
+    }
+
+    public static void main(String[] args) {
+        if (args.length > 0 && "index".equals(args[0])) {
+            index(sizes(args, 1, INDEX_SIZES));
+            return;
+        }
+        int[] sizes = sizes(args, 0, DEFAULT_SIZES);
+        for (int size : sizes) {
+            Random random = new Random(size);
+            int[] ints = random.ints(size).toArray();
+            int[] intKeys = random.ints(LOOKUPS).toArray();
+            long[] longs = random.longs(size).toArray();
+            long[] longKeys = random.longs(LOOKUPS).toArray();
+
+            measure("binarySearch", size, () -> Arrays.stream(ints).sorted().distinct().boxed().toArray(Integer[]::new), array -> {
+                long sum = 0;
+                for (int key : intKeys) {
+                    int pos = Arrays.binarySearch(array, key);
+                    int index = pos >= 0 ? pos : -pos - 1;
+                    sum += index < array.length ? array[index] : 0;
+                }
+                return sum;
+            });
+            measure("ArraySet<Int>", size, () -> new ArraySet<>(Arrays.stream(ints).boxed().toList()), set -> {
+                long sum = 0;
+                for (int key : intKeys) {
+                    Integer value = set.ceiling(key);
+                    sum += value == null ? 0 : value;
+                }
+                return sum;
+            });
+            measure("IntArraySet", size, () -> new IntArraySet(ints), set -> {
+                long sum = 0;
+                for (int key : intKeys) {
+                    sum += set.ceiling(key, 0);
+                }
+                return sum;
+            });
+            measure("ArraySet<Lng>", size, () -> new ArraySet<>(Arrays.stream(longs).boxed().toList()), set -> {
+                long sum = 0;
+                for (long key : longKeys) {
+                    Long value = set.ceiling(key);
+                    sum += value == null ? 0 : value;
+                }
+                return sum;
+            });
+            measure("LongArraySet", size, () -> new LongArraySet(longs), set -> {
+                long sum = 0;
+                for (long key : longKeys) {
+                    sum += set.ceiling(key, 0);
+                }
+                return sum;
+            });
+
+            int strings = size / 10;
+            String[] stringKeys = random.ints(1 << 16, 0, strings + 1).mapToObj(i -> url(i) + (i % 2 == 0 ? "" : "x")).toArray(String[]::new);
+            ArraySet<String> arraySet = measure("ArraySet<Str>", strings, STRING_LOOKUPS,
+                    () -> new ArraySet<>(urls(strings)), stringLookups(stringKeys));
+            FrontCodedStringSet frontCoded = measure("FrontCoded", strings, STRING_LOOKUPS,
+                    () -> new FrontCodedStringSet(urls(strings)), stringLookups(stringKeys));
+            // Iterations of already built sets, counted per string
+            measure("ArraySet asc", strings, strings, () -> arraySet, ArraySetBenchmark::iterate);
+            measure("ArraySet desc", strings, strings, arraySet::descendingSet, ArraySetBenchmark::iterate);
+            measure("FrontCoded asc", strings, strings, () -> frontCoded, ArraySetBenchmark::iterate);
+            measure("FrontCoded desc", strings, strings, frontCoded::descendingSet, ArraySetBenchmark::iterate);
+        }
+    }
+}
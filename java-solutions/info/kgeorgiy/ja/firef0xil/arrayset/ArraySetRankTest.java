@@ -0,0 +1,97 @@
+package info.kgeorgiy.ja.firef0xil.arrayset;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ArraySetRankTest {
+    private final static int ITERATIONS = 1000;
+    private final static int RANGE = 100;
+
+    private final Random random = new Random(2347856238475623847L);
+
+    private static int count(List<Integer> elements, Comparator<? super Integer> comparator,
+                             int from, boolean fromInclusive, int to, boolean toInclusive) {
+        int result = 0;
+        for (int element : elements) {
+            int low = comparator.compare(element, from);
+            int high = comparator.compare(element, to);
+            if ((fromInclusive ? low >= 0 : low > 0) && (toInclusive ? high <= 0 : high < 0)) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    private static int count(List<Integer> elements, Comparator<? super Integer> comparator, int key) {
+        int result = 0;
+        for (int element : elements) {
+            if (comparator.compare(element, key) < 0) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void test1_views() {
+        for (int i = 0; i < ITERATIONS; i++) {
+            List<Integer> values = new ArrayList<>();
+            for (int j = random.nextInt(60); j > 0; j--) {
+                values.add(random.nextInt(RANGE));
+            }
+            int from = random.nextInt(RANGE);
+            int to = from + random.nextInt(RANGE - from + 1);
+            NavigableSet<Integer> expected = new TreeSet<>(values).subSet(from, true, to, false);
+            ArraySet<Integer> set = new ArraySet<>(values).subSet(from, true, to, false);
+            if (random.nextBoolean()) {
+                expected = expected.descendingSet();
+                set = set.descendingSet();
+            }
+            List<Integer> elements = new ArrayList<>(expected);
+            Comparator<? super Integer> comparator = Objects.requireNonNullElse(
+                    set.comparator(), Comparator.naturalOrder());
+
+            for (int j = 0; j < elements.size(); j++) {
+                assertEquals(elements.get(j), set.select(j));
+            }
+            List<Integer> probes = new ArrayList<>();
+            for (int key = -5; key < RANGE + 5; key++) {
+                assertEquals(count(elements, comparator, key), set.rank(key));
+                probes.add(key);
+                for (int other = -5; other < RANGE + 5; other += 7) {
+                    if (comparator.compare(key, other) <= 0) {
+                        assertEquals(count(elements, comparator, key, true, other, true),
+                                set.countInRange(key, true, other, true));
+                        assertEquals(count(elements, comparator, key, true, other, false),
+                                set.countInRange(key, other));
+                    }
+                }
+            }
+            probes.sort(comparator);
+            int[] ranks = set.ranks(probes);
+            boolean[] contains = set.containsEach(probes);
+            for (int j = 0; j < probes.size(); j++) {
+                assertEquals(set.rank(probes.get(j)), ranks[j]);
+                assertEquals(expected.contains(probes.get(j)), contains[j]);
+            }
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void test2_selectOutOfRange() {
+        new ArraySet<>(List.of(1, 2, 3)).select(3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test3_unsortedProbes() {
+        new ArraySet<>(List.of(1, 2, 3)).ranks(List.of(3, 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test4_reversedRange() {
+        new ArraySet<>(List.of(1, 2, 3)).countInRange(3, 1);
+    }
+}
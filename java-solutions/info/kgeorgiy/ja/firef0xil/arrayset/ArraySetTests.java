@@ -0,0 +1,29 @@
+package info.kgeorgiy.ja.firef0xil.arrayset;
+
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+
+public class ArraySetTests {
+    public static void main(String[] args) {
+        final Result result = new JUnitCore().run(
+                ArraySetAlgebraTest.class,
+                ArraySetRankTest.class,
+                PrimitiveArraySetTest.class,
+                PersistentArraySetTest.class,
+                ConcurrentArraySetTest.class,
+                FrontCodedStringSetTest.class
+        );
+        if (result.wasSuccessful()) {
+            System.exit(0);
+            return;
+        }
+        result.getFailures().forEach(failure -> {
+            System.err.println("Test " + failure.getDescription().getMethodName() + " failed: " + failure.getMessage());
+            if (failure.getException() != null) {
+                failure.getException().printStackTrace();
+            }
+        });
+        System.exit(1);
+        throw new AssertionError("Exit");
+    }
+}
@@ -0,0 +1,332 @@
+package info.kgeorgiy.ja.firef0xil.arrayset;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Reads go to the current snapshot without locking, submitted updates are merged into a new snapshot
+// every merge interval, as soon as batchSize updates are pending, or on flush
+public class ConcurrentArraySet<T> extends AbstractSet<T> implements NavigableSet<T>, AutoCloseable {
+    private final static int AWAIT_TIME = 10;
+    private final static TimeUnit AWAIT_UNIT = TimeUnit.SECONDS;
+    private final static Duration DEFAULT_INTERVAL = Duration.ofMillis(100);
+    private final static int DEFAULT_BATCH_SIZE = 1 << 16;
+
+    private record Update<T>(T element, boolean added) {
+    }
+
+    public record Metrics(long version, long pendingUpdates, long stalenessNanos, long merges, long mergedUpdates,
+                          long lastMergeNanos, long maxMergeNanos, long failures, long droppedUpdates) {
+    }
+
+    private volatile ArraySet<T> current;
+    private final Queue<Update<T>> updates = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService merger;
+    private final int batchSize;
+    // Submitters hold the read lock while enqueueing, so close cannot slip in between the check and the enqueue
+    private final ReadWriteLock closing = new ReentrantReadWriteLock();
+    private boolean closed;
+
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong oldestPending = new AtomicLong();
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicLong merges = new AtomicLong();
+    private final AtomicLong mergedUpdates = new AtomicLong();
+    private final AtomicLong lastMergeNanos = new AtomicLong();
+    private final AtomicLong maxMergeNanos = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong droppedUpdates = new AtomicLong();
+    private final AtomicReference<RuntimeException> lastFailure = new AtomicReference<>();
+
+    public ConcurrentArraySet() {
+        this(Collections.emptyList(), null);
+    }
+
+    public ConcurrentArraySet(Comparator<? super T> comparator) {
+        this(Collections.emptyList(), comparator);
+    }
+
+    public ConcurrentArraySet(Collection<? extends T> collection, Comparator<? super T> comparator) {
+        this(collection, comparator, DEFAULT_INTERVAL, DEFAULT_BATCH_SIZE);
+    }
+
+    public ConcurrentArraySet(Collection<? extends T> collection, Comparator<? super T> comparator,
+                              Duration interval, int batchSize) {
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Merge interval should be positive");
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size should be positive number");
+        }
+        this.current = new ArraySet<>(collection, comparator);
+        this.batchSize = batchSize;
+        this.merger = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "array-set-merger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long nanos = interval.toNanos();
+        merger.scheduleWithFixedDelay(this::merge, nanos, nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public ArraySet<T> snapshot() {
+        return current;
+    }
+
+    public void submitAdd(T element) {
+        submit(new Update<>(element, true));
+    }
+
+    public void submitRemove(T element) {
+        submit(new Update<>(element, false));
+    }
+
+    public void submitAddAll(Collection<? extends T> collection) {
+        for (T element : collection) {
+            submitAdd(element);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(T first, T second) {
+        Comparator<? super T> comparator = current.comparator();
+        return comparator == null
+                ? ((Comparable<? super T>) first).compareTo(second)
+                : comparator.compare(first, second);
+    }
+
+    // Elements the comparator rejects are rejected here, so they cannot fail a merge of other updates
+    private void submit(Update<T> update) {
+        compare(update.element(), update.element());
+        ArraySet<T> snapshot = current;
+        if (!snapshot.isEmpty()) {
+            compare(update.element(), snapshot.first());
+        }
+        closing.readLock().lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Set is closed");
+            }
+            oldestPending.compareAndSet(0, System.nanoTime());
+            updates.add(update);
+            if (pending.incrementAndGet() == batchSize) {
+                merger.execute(this::merge);
+            }
+        } finally {
+            closing.readLock().unlock();
+        }
+    }
+
+    // Runs in the merger thread only, so snapshots are published in order
+    private void merge() {
+        if (updates.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        ArraySet<T> snapshot = current;
+        NavigableMap<T, Boolean> latest = new TreeMap<>(snapshot.comparator());
+        int count = 0;
+        try {
+            for (Update<T> update; (update = updates.poll()) != null; count++) {
+                latest.put(update.element(), update.added());
+            }
+            // Updates enqueued while draining wait for the next merge, so their clock starts now
+            oldestPending.set(updates.isEmpty() ? 0 : System.nanoTime());
+            List<T> added = new ArrayList<>();
+            List<T> removed = new ArrayList<>();
+            latest.forEach((element, add) -> (add ? added : removed).add(element));
+            ArraySet<T> next = snapshot;
+            if (!removed.isEmpty()) {
+                next = ArraySet.difference(next, new ArraySet<>(removed, snapshot.comparator()));
+            }
+            if (!added.isEmpty()) {
+                next = ArraySet.union(next, new ArraySet<>(added, snapshot.comparator()));
+            }
+            current = next;
+            version.incrementAndGet();
+        } catch (RuntimeException e) {
+            failures.incrementAndGet();
+            droppedUpdates.addAndGet(count);
+            lastFailure.set(e);
+        } finally {
+            pending.addAndGet(-count);
+            long elapsed = System.nanoTime() - start;
+            merges.incrementAndGet();
+            mergedUpdates.addAndGet(count);
+            lastMergeNanos.set(elapsed);
+            maxMergeNanos.accumulateAndGet(elapsed, Math::max);
+        }
+    }
+
+    // Waits until all updates submitted before the call are visible to readers,
+    // fails if any of them were dropped by a failed merge
+    public void flush() throws InterruptedException {
+        long failed = failures.get();
+        try {
+            merger.submit(this::merge).get();
+            if (failures.get() != failed) {
+                throw new IllegalStateException("Updates were dropped by a failed merge", lastFailure.get());
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Merge failed", e.getCause());
+        } catch (RejectedExecutionException e) {
+            throw new IllegalStateException("Set is closed", e);
+        }
+    }
+
+    public Metrics metrics() {
+        long waiting = pending.get();
+        long oldest = oldestPending.get();
+        return new Metrics(version.get(), waiting, waiting == 0 || oldest == 0 ? 0 : System.nanoTime() - oldest,
+                merges.get(), mergedUpdates.get(), lastMergeNanos.get(), maxMergeNanos.get(),
+                failures.get(), droppedUpdates.get());
+    }
+
+    @Override
+    public synchronized void close() {
+        closing.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            closing.writeLock().unlock();
+        }
+        merger.execute(this::merge);
+        merger.shutdown();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (merger.awaitTermination(AWAIT_TIME, AWAIT_UNIT)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+            merger.shutdownNow();
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public T lower(T t) {
+        return current.lower(t);
+    }
+
+    @Override
+    public T floor(T t) {
+        return current.floor(t);
+    }
+
+    @Override
+    public T ceiling(T t) {
+        return current.ceiling(t);
+    }
+
+    @Override
+    public T higher(T t) {
+        return current.higher(t);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return current.contains(o);
+    }
+
+    @Override
+    public T pollFirst() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public T pollLast() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return current.iterator();
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        return current.spliterator();
+    }
+
+    @Override
+    public Object[] toArray() {
+        return current.toArray();
+    }
+
+    @Override
+    public <E> E[] toArray(E[] a) {
+        return current.toArray(a);
+    }
+
+    @Override
+    public NavigableSet<T> descendingSet() {
+        return current.descendingSet();
+    }
+
+    @Override
+    public Iterator<T> descendingIterator() {
+        return current.descendingIterator();
+    }
+
+    @Override
+    public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+        return current.subSet(fromElement, fromInclusive, toElement, toInclusive);
+    }
+
+    @Override
+    public NavigableSet<T> headSet(T toElement, boolean inclusive) {
+        return current.headSet(toElement, inclusive);
+    }
+
+    @Override
+    public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
+        return current.tailSet(fromElement, inclusive);
+    }
+
+    @Override
+    public Comparator<? super T> comparator() {
+        return current.comparator();
+    }
+
+    @Override
+    public SortedSet<T> subSet(T fromElement, T toElement) {
+        return current.subSet(fromElement, toElement);
+    }
+
+    @Override
+    public SortedSet<T> headSet(T toElement) {
+        return current.headSet(toElement);
+    }
+
+    @Override
+    public SortedSet<T> tailSet(T fromElement) {
+        return current.tailSet(fromElement);
+    }
+
+    @Override
+    public T first() {
+        return current.first();
+    }
+
+    @Override
+    public T last() {
+        return current.last();
+    }
+
+    @Override
+    public int size() {
+        return current.size();
+    }
+}
@@ -0,0 +1,196 @@
+package info.kgeorgiy.ja.firef0xil.arrayset;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentArraySetTest {
+    private final static Duration INTERVAL = Duration.ofMillis(5);
+    private final static Duration NEVER = Duration.ofHours(1);
+    private final static int THREADS = 8;
+
+    @Test
+    public void test1_sequentialUpdates() throws InterruptedException {
+        Random random = new Random(4357823465782346L);
+        TreeSet<Integer> expected = new TreeSet<>(List.of(1, 2, 3));
+        try (ConcurrentArraySet<Integer> set = new ConcurrentArraySet<>(expected, null, INTERVAL, 1000)) {
+            for (int i = 0; i < 20000; i++) {
+                int element = random.nextInt(3000);
+                if (random.nextBoolean()) {
+                    set.submitAdd(element);
+                    expected.add(element);
+                } else {
+                    set.submitRemove(element);
+                    expected.remove(element);
+                }
+            }
+            set.flush();
+            assertEquals(new ArrayList<>(expected), new ArrayList<>(set));
+            assertEquals(0, set.metrics().pendingUpdates());
+            assertEquals(20000, set.metrics().mergedUpdates());
+        }
+    }
+
+    @Test
+    public void test2_flushOnlyVisibility() throws InterruptedException {
+        try (ConcurrentArraySet<Integer> set = new ConcurrentArraySet<>(List.of(), null, NEVER, 1000)) {
+            set.submitAdd(1);
+            assertTrue(set.isEmpty());
+            assertEquals(1, set.metrics().pendingUpdates());
+            set.flush();
+            assertEquals(List.of(1), new ArrayList<>(set));
+        }
+    }
+
+    @Test
+    public void test3_batchSize() throws InterruptedException {
+        try (ConcurrentArraySet<Integer> set = new ConcurrentArraySet<>(List.of(), null, NEVER, 10)) {
+            for (int i = 0; i < 10; i++) {
+                set.submitAdd(i);
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (set.size() < 10 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(10, set.size());
+        }
+    }
+
+    @Test
+    public void test4_concurrentWritersAndReaders() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2 * THREADS);
+        try (ConcurrentArraySet<Integer> set = new ConcurrentArraySet<>(List.of(), null, INTERVAL, 1000)) {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                int first = thread * 10000;
+                writers.add(executor.submit(() -> {
+                    for (int i = first; i < first + 10000; i++) {
+                        set.submitAdd(i);
+                    }
+                }));
+            }
+            List<Future<?>> readers = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                readers.add(executor.submit(() -> {
+                    // Only additions are submitted, so every later snapshot contains every earlier one
+                    ArraySet<Integer> previous = set.snapshot();
+                    for (int i = 0; i < 1000; i++) {
+                        ArraySet<Integer> snapshot = set.snapshot();
+                        assertTrue(snapshot.size() >= previous.size());
+                        assertTrue(previous.isEmpty()
+                                || snapshot.contains(previous.first()) && snapshot.contains(previous.last()));
+                        previous = snapshot;
+                    }
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+            for (Future<?> reader : readers) {
+                reader.get();
+            }
+            set.flush();
+            assertEquals(THREADS * 10000, set.size());
+            assertEquals(0, (int) set.first());
+            assertEquals(THREADS * 10000 - 1, (int) set.last());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test5_comparator() throws InterruptedException {
+        try (ConcurrentArraySet<Integer> set = new ConcurrentArraySet<>(Comparator.reverseOrder())) {
+            set.submitAddAll(List.of(5, 7, 6));
+            set.flush();
+            assertEquals(List.of(7, 6, 5), new ArrayList<>(set));
+            assertEquals(6, (int) set.higher(7));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void test6_closeMergesPending() {
+        ConcurrentArraySet<Integer> set = new ConcurrentArraySet<>(List.of(), null, NEVER, 1000);
+        set.submitAdd(1);
+        set.close();
+        set.close();
+        assertEquals(List.of(1), new ArrayList<>(set));
+        set.submitAdd(2);
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void test7_rejectsBadElements() throws InterruptedException {
+        try (ConcurrentArraySet<Integer> set = new ConcurrentArraySet<>(List.of(1), null, NEVER, 1000)) {
+            set.submitAdd(2);
+            try {
+                set.submitAdd(null);
+                fail("Null accepted");
+            } catch (NullPointerException ignored) {
+            }
+            try {
+                ((ConcurrentArraySet) set).submitAdd("3");
+                fail("Incomparable element accepted");
+            } catch (ClassCastException ignored) {
+            }
+            set.submitAdd(3);
+            set.flush();
+            assertEquals(List.of(1, 2, 3), new ArrayList<>(set));
+            assertEquals(0, set.metrics().failures());
+            assertEquals(0, set.metrics().droppedUpdates());
+        }
+    }
+
+    @Test
+    public void test8_closeKeepsInterrupt() {
+        ConcurrentArraySet<Integer> set = new ConcurrentArraySet<>();
+        Thread.currentThread().interrupt();
+        set.close();
+        assertTrue(Thread.interrupted());
+    }
+
+    // The comparator stalls the submit of the marker element, so close runs while it is in flight
+    @Test
+    public void test9_closeConcurrentWithSubmit() throws Exception {
+        int marker = -1;
+        CountDownLatch comparing = new CountDownLatch(1);
+        Comparator<Integer> stalling = (a, b) -> {
+            if (a == marker && comparing.getCount() > 0) {
+                comparing.countDown();
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return Integer.compare(a, b);
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        ConcurrentArraySet<Integer> set = new ConcurrentArraySet<>(List.of(1, 2), stalling, NEVER, 1000);
+        try {
+            Future<Boolean> submitted = executor.submit(() -> {
+                try {
+                    set.submitAdd(marker);
+                    return true;
+                } catch (IllegalStateException e) {
+                    return false;
+                }
+            });
+            comparing.await();
+            set.close();
+            // Either the submit is rejected or its update is merged, it is never lost
+            assertEquals(submitted.get(), set.contains(marker));
+            assertEquals(0, set.metrics().pendingUpdates());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
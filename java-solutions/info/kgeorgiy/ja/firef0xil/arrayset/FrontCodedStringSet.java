@@ -0,0 +1,415 @@
+package info.kgeorgiy.ja.firef0xil.arrayset;
+
+import java.io.ByteArrayOutputStream;
+import java.util.*;
+
+// Every block starts with a complete string, the others keep the length of the prefix shared
+// with the previous string and the rest of their bytes, encoded per UTF-16 unit so byte order is string order
+public class FrontCodedStringSet extends AbstractSet<String> implements NavigableSet<String> {
+    private final static int BLOCK = 16;
+
+    private final byte[] data;
+    private final int[] blocks;
+    private final int maxLength;
+    private final int count;
+    private final int from;
+    private final int to;
+    private final boolean reverse;
+
+    public FrontCodedStringSet() {
+        this(Collections.emptyList());
+    }
+
+    public FrontCodedStringSet(Collection<String> collection) {
+        Object[] strings = new ArraySet<>(collection).toArray();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int[] blocks = new int[(strings.length + BLOCK - 1) / BLOCK];
+        int maxLength = 0;
+        byte[] previous = new byte[0];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] bytes = encode((String) strings[i]);
+            int shared = 0;
+            if (i % BLOCK == 0) {
+                blocks[i / BLOCK] = output.size();
+            } else {
+                shared = Math.max(Arrays.mismatch(previous, bytes), 0);
+                writeVarint(output, shared);
+            }
+            writeVarint(output, bytes.length - shared);
+            output.write(bytes, shared, bytes.length - shared);
+            maxLength = Math.max(maxLength, bytes.length);
+            previous = bytes;
+        }
+        this.data = output.toByteArray();
+        this.blocks = blocks;
+        this.maxLength = maxLength;
+        this.count = strings.length;
+        this.from = 0;
+        this.to = strings.length;
+        this.reverse = false;
+    }
+
+    private FrontCodedStringSet(FrontCodedStringSet set, int from, int to, boolean reverse) {
+        this.data = set.data;
+        this.blocks = set.blocks;
+        this.maxLength = set.maxLength;
+        this.count = set.count;
+        this.from = from;
+        this.to = to;
+        this.reverse = reverse;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream output, int value) {
+        while ((value & ~0x7F) != 0) {
+            output.write(value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        output.write(value);
+    }
+
+    private static byte[] encode(String string) {
+        byte[] result = new byte[string.length() * 3];
+        int size = 0;
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c < 0x80) {
+                result[size++] = (byte) c;
+            } else if (c < 0x800) {
+                result[size++] = (byte) (0xC0 | c >> 6);
+                result[size++] = (byte) (0x80 | c & 0x3F);
+            } else {
+                result[size++] = (byte) (0xE0 | c >> 12);
+                result[size++] = (byte) (0x80 | c >> 6 & 0x3F);
+                result[size++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private static String decode(byte[] bytes, int length) {
+        char[] result = new char[length];
+        int size = 0;
+        for (int i = 0; i < length; ) {
+            int b = bytes[i] & 0xFF;
+            if (b < 0x80) {
+                result[size++] = (char) b;
+                i++;
+            } else if (b < 0xE0) {
+                result[size++] = (char) ((b & 0x1F) << 6 | bytes[i + 1] & 0x3F);
+                i += 2;
+            } else {
+                result[size++] = (char) ((b & 0x0F) << 12 | (bytes[i + 1] & 0x3F) << 6 | bytes[i + 2] & 0x3F);
+                i += 3;
+            }
+        }
+        return new String(result, 0, size);
+    }
+
+    // Decodes strings of a block one after another into a reused buffer
+    private class Cursor {
+        private final byte[] buffer = new byte[maxLength];
+        private int length;
+        private int position;
+        private int index;
+
+        void seek(int block) {
+            position = blocks[block];
+            index = block * BLOCK;
+            length = varint();
+            System.arraycopy(data, position, buffer, 0, length);
+            position += length;
+        }
+
+        void next() {
+            if ((index + 1) % BLOCK == 0) {
+                seek((index + 1) / BLOCK);
+                return;
+            }
+            index++;
+            int shared = varint();
+            int suffix = varint();
+            System.arraycopy(data, position, buffer, shared, suffix);
+            position += suffix;
+            length = shared + suffix;
+        }
+
+        private int varint() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = data[position++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+
+        int compareTo(byte[] key) {
+            return Arrays.compareUnsigned(buffer, 0, length, key, 0, key.length);
+        }
+
+        String string() {
+            return decode(buffer, length);
+        }
+    }
+
+    // Arrays.binarySearch over all strings of the set in ascending order
+    private int search(String key) {
+        byte[] bytes = encode(key);
+        Cursor cursor = new Cursor();
+        int low = 0;
+        int high = blocks.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            cursor.seek(middle);
+            if (cursor.compareTo(bytes) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        if (high < 0) {
+            return -1;
+        }
+        cursor.seek(high);
+        int end = Math.min((high + 1) * BLOCK, count);
+        while (true) {
+            int order = cursor.compareTo(bytes);
+            if (order == 0) {
+                return cursor.index;
+            } else if (order > 0) {
+                return -cursor.index - 1;
+            } else if (cursor.index + 1 == end) {
+                return -cursor.index - 2;
+            }
+            cursor.next();
+        }
+    }
+
+    private String element(int index) {
+        Cursor cursor = new Cursor();
+        cursor.seek(index / BLOCK);
+        while (cursor.index < index) {
+            cursor.next();
+        }
+        return cursor.string();
+    }
+
+    private int clamp(int index) {
+        return Math.min(Math.max(index, from), to);
+    }
+
+    private int left(String key) {
+        int pos = search(key);
+        return clamp(pos >= 0 ? pos : -pos - 1);
+    }
+
+    private int right(String key) {
+        int pos = search(key);
+        return clamp(pos >= 0 ? pos + 1 : -pos - 1);
+    }
+
+    private String elementOrNull(int index) {
+        return from <= index && index < to ? element(index) : null;
+    }
+
+    private int lowerIndex(String key) {
+        return reverse ? right(key) : left(key) - 1;
+    }
+
+    private int floorIndex(String key) {
+        return reverse ? left(key) : right(key) - 1;
+    }
+
+    private int ceilingIndex(String key) {
+        return reverse ? right(key) - 1 : left(key);
+    }
+
+    private int higherIndex(String key) {
+        return reverse ? left(key) - 1 : right(key);
+    }
+
+    @Override
+    public String lower(String t) {
+        return elementOrNull(lowerIndex(t));
+    }
+
+    @Override
+    public String floor(String t) {
+        return elementOrNull(floorIndex(t));
+    }
+
+    @Override
+    public String ceiling(String t) {
+        return elementOrNull(ceilingIndex(t));
+    }
+
+    @Override
+    public String higher(String t) {
+        return elementOrNull(higherIndex(t));
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (o instanceof String string) {
+            int pos = search(string);
+            return from <= pos && pos < to;
+        }
+        return false;
+    }
+
+    @Override
+    public String pollFirst() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String pollLast() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        if (reverse) {
+            // Strings can be decoded forward only, so every block is decoded once and walked backwards
+            return new Iterator<>() {
+                private final Cursor cursor = new Cursor();
+                private final String[] block = new String[BLOCK];
+                private int index = to;
+
+                @Override
+                public boolean hasNext() {
+                    return index > from;
+                }
+
+                @Override
+                public String next() {
+                    if (index == from) {
+                        throw new NoSuchElementException();
+                    }
+                    index--;
+                    if (index == to - 1 || index % BLOCK == BLOCK - 1) {
+                        cursor.seek(index / BLOCK);
+                        while (true) {
+                            if (cursor.index >= from) {
+                                block[cursor.index % BLOCK] = cursor.string();
+                            }
+                            if (cursor.index == index) {
+                                break;
+                            }
+                            cursor.next();
+                        }
+                    }
+                    return block[index % BLOCK];
+                }
+            };
+        }
+        return new Iterator<>() {
+            private final Cursor cursor = new Cursor();
+            private int index = from;
+
+            @Override
+            public boolean hasNext() {
+                return index < to;
+            }
+
+            @Override
+            public String next() {
+                if (index == to) {
+                    throw new NoSuchElementException();
+                }
+                if (index == from) {
+                    cursor.seek(index / BLOCK);
+                }
+                while (cursor.index < index) {
+                    cursor.next();
+                }
+                index++;
+                return cursor.string();
+            }
+        };
+    }
+
+    @Override
+    public FrontCodedStringSet descendingSet() {
+        return new FrontCodedStringSet(this, from, to, !reverse);
+    }
+
+    @Override
+    public Iterator<String> descendingIterator() {
+        return descendingSet().iterator();
+    }
+
+    private FrontCodedStringSet range(int fromIndex, int toIndex) {
+        return new FrontCodedStringSet(this, fromIndex, Math.max(fromIndex, toIndex), reverse);
+    }
+
+    private int compare(String first, String second) {
+        return reverse ? second.compareTo(first) : first.compareTo(second);
+    }
+
+    @Override
+    public FrontCodedStringSet subSet(String fromElement, boolean fromInclusive, String toElement, boolean toInclusive) {
+        if (compare(fromElement, toElement) > 0) {
+            throw new IllegalArgumentException();
+        }
+        return reverse
+                ? range(toInclusive ? left(toElement) : right(toElement), fromInclusive ? right(fromElement) : left(fromElement))
+                : range(fromInclusive ? left(fromElement) : right(fromElement), toInclusive ? right(toElement) : left(toElement));
+    }
+
+    @Override
+    public FrontCodedStringSet headSet(String toElement, boolean inclusive) {
+        return reverse
+                ? range(inclusive ? left(toElement) : right(toElement), to)
+                : range(from, inclusive ? right(toElement) : left(toElement));
+    }
+
+    @Override
+    public FrontCodedStringSet tailSet(String fromElement, boolean inclusive) {
+        return reverse
+                ? range(from, inclusive ? right(fromElement) : left(fromElement))
+                : range(inclusive ? left(fromElement) : right(fromElement), to);
+    }
+
+    @Override
+    public Comparator<? super String> comparator() {
+        return reverse ? Collections.reverseOrder() : null;
+    }
+
+    @Override
+    public SortedSet<String> subSet(String fromElement, String toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public SortedSet<String> headSet(String toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public SortedSet<String> tailSet(String fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public String first() {
+        checkEmpty();
+        return element(reverse ? to - 1 : from);
+    }
+
+    @Override
+    public String last() {
+        checkEmpty();
+        return element(reverse ? from : to - 1);
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    private void checkEmpty() {
+        if (isEmpty()) throw new NoSuchElementException();
+    }
+}
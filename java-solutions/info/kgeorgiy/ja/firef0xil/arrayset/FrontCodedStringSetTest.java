@@ -0,0 +1,142 @@
+package info.kgeorgiy.ja.firef0xil.arrayset;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class FrontCodedStringSetTest {
+    // Boundaries of one, two and three byte encodings, a surrogate pair and shared prefixes
+    private final static String[] PARTS = {
+            "a", "ab", "abc", "b", "zz", "/x/", "\u0000", "\u00e9", "\u07ff", "\u0800", "\uffff", "\ud83d\ude00"
+    };
+
+    private final Random random = new Random(6782346578234657823L);
+
+    private String randomString() {
+        StringBuilder result = new StringBuilder();
+        for (int i = random.nextInt(6); i > 0; i--) {
+            result.append(PARTS[random.nextInt(PARTS.length)]);
+        }
+        return result.toString();
+    }
+
+    private static TreeSet<String> copy(Collection<String> collection, Comparator<? super String> comparator) {
+        TreeSet<String> result = new TreeSet<>(comparator);
+        result.addAll(collection);
+        return result;
+    }
+
+    private void check(NavigableSet<String> expected, NavigableSet<String> actual, int depth) {
+        assertEquals(new ArrayList<>(expected), new ArrayList<>(actual));
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < 40; i++) {
+            String key = randomString();
+            assertEquals(expected.lower(key), actual.lower(key));
+            assertEquals(expected.floor(key), actual.floor(key));
+            assertEquals(expected.ceiling(key), actual.ceiling(key));
+            assertEquals(expected.higher(key), actual.higher(key));
+            assertEquals(expected.contains(key), actual.contains(key));
+        }
+        if (!expected.isEmpty()) {
+            assertEquals(expected.first(), actual.first());
+            assertEquals(expected.last(), actual.last());
+        }
+        if (depth > 0) {
+            String from = randomString();
+            String to = randomString();
+            Comparator<? super String> comparator = Objects.requireNonNullElse(
+                    expected.comparator(), Comparator.naturalOrder());
+            if (comparator.compare(from, to) > 0) {
+                String swap = from;
+                from = to;
+                to = swap;
+            }
+            boolean fromInclusive = random.nextBoolean();
+            boolean toInclusive = random.nextBoolean();
+            // Copies, since views of TreeSet reject keys out of their range
+            Comparator<? super String> order = expected.comparator();
+            check(copy(expected.subSet(from, fromInclusive, to, toInclusive), order),
+                    actual.subSet(from, fromInclusive, to, toInclusive), depth - 1);
+            check(copy(expected.headSet(to, toInclusive), order), actual.headSet(to, toInclusive), depth - 1);
+            check(copy(expected.tailSet(from, fromInclusive), order), actual.tailSet(from, fromInclusive), depth - 1);
+            check(copy(expected.descendingSet(), expected.descendingSet().comparator()),
+                    actual.descendingSet(), depth - 1);
+        }
+    }
+
+    @Test
+    public void test1_random() {
+        for (int i = 0; i < 1000; i++) {
+            List<String> strings = new ArrayList<>();
+            for (int j = random.nextInt(i % 10 == 0 ? 2000 : 60); j > 0; j--) {
+                strings.add(randomString());
+            }
+            check(new TreeSet<>(strings), new FrontCodedStringSet(strings), 3);
+        }
+    }
+
+    @Test
+    public void test2_empty() {
+        FrontCodedStringSet set = new FrontCodedStringSet();
+        assertTrue(set.isEmpty());
+        assertNull(set.ceiling(""));
+        assertFalse(set.contains(""));
+        assertFalse(set.iterator().hasNext());
+    }
+
+    @Test
+    public void test3_blockBoundaries() {
+        List<String> strings = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            strings.add(String.format("https://www.example.com/page-%03d.html", i));
+        }
+        FrontCodedStringSet set = new FrontCodedStringSet(strings);
+        assertEquals(strings, new ArrayList<>(set));
+        for (String string : strings) {
+            assertTrue(set.contains(string));
+            assertEquals(string, set.floor(string + "\u0000"));
+        }
+        assertFalse(set.contains(1));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void test4_immutable() {
+        new FrontCodedStringSet(List.of("a")).pollFirst();
+    }
+
+    @Test
+    public void test5_descendingIteration() {
+        for (int size : new int[]{1, 15, 16, 17, 32, 33, 100}) {
+            List<String> strings = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                strings.add(String.format("https://www.example.com/page-%03d.html", i));
+            }
+            FrontCodedStringSet set = new FrontCodedStringSet(strings);
+            List<String> expected = new ArrayList<>(strings);
+            Collections.reverse(expected);
+            List<String> actual = new ArrayList<>();
+            set.descendingIterator().forEachRemaining(actual::add);
+            assertEquals(expected, actual);
+            assertEquals(expected, new ArrayList<>(set.descendingSet()));
+            for (int from = 0; from < size; from += 7) {
+                for (int to = from; to <= size; to += 5) {
+                    List<String> view = new ArrayList<>(strings.subList(from, to));
+                    Collections.reverse(view);
+                    String fromElement = strings.get(from);
+                    String toElement = to == size ? "~" : strings.get(to);
+                    assertEquals(view, new ArrayList<>(set.subSet(fromElement, true, toElement, false).descendingSet()));
+                }
+            }
+            Iterator<String> iterator = set.descendingIterator();
+            iterator.forEachRemaining(string -> {
+            });
+            try {
+                iterator.next();
+                fail("Iterated past the first string");
+            } catch (NoSuchElementException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package info.kgeorgiy.ja.firef0xil.arrayset;
+
+import java.util.*;
+
+// Views share the sorted array of the set they were created from
+public class IntArraySet extends AbstractSet<Integer> implements NavigableSet<Integer> {
+    private final int[] data;
+    private final SearchTree index;
+    private final int from;
+    private final int to;
+    private final boolean reverse;
+
+    public IntArraySet() {
+        this(new int[0], false);
+    }
+
+    public IntArraySet(int[] values) {
+        this(sortedDistinct(values.clone()), false);
+    }
+
+    public IntArraySet(Collection<Integer> collection) {
+        this(toArray(collection), false);
+    }
+
+    private IntArraySet(int[] data, boolean reverse) {
+        this(data, SearchTree.of(data), 0, data.length, reverse);
+    }
+
+    private IntArraySet(int[] data, SearchTree index, int from, int to, boolean reverse) {
+        this.data = data;
+        this.index = index;
+        this.from = from;
+        this.to = to;
+        this.reverse = reverse;
+    }
+
+    private static int[] toArray(Collection<Integer> collection) {
+        int[] values = new int[collection.size()];
+        int size = 0;
+        for (Integer value : collection) {
+            values[size++] = value;
+        }
+        return sortedDistinct(size == values.length ? values : Arrays.copyOf(values, size));
+    }
+
+    private static int[] sortedDistinct(int[] values) {
+        Arrays.sort(values);
+        int size = Math.min(values.length, 1);
+        for (int i = 1; i < values.length; i++) {
+            if (values[i] != values[size - 1]) {
+                values[size++] = values[i];
+            }
+        }
+        return size == values.length ? values : Arrays.copyOf(values, size);
+    }
+
+    private int left(int key) {
+        if (index != null) {
+            return Math.min(Math.max(index.lowerBound(key), from), to);
+        }
+        int pos = Arrays.binarySearch(data, from, to, key);
+        return pos >= 0 ? pos : -pos - 1;
+    }
+
+    private int right(int key) {
+        if (index != null) {
+            return key == Integer.MAX_VALUE ? to : left(key + 1);
+        }
+        int pos = Arrays.binarySearch(data, from, to, key);
+        return pos >= 0 ? pos + 1 : -pos - 1;
+    }
+
+    private int element(int index, int absent) {
+        return from <= index && index < to ? data[index] : absent;
+    }
+
+    private Integer element(int index) {
+        return from <= index && index < to ? data[index] : null;
+    }
+
+    private int lowerIndex(int key) {
+        return reverse ? right(key) : left(key) - 1;
+    }
+
+    private int floorIndex(int key) {
+        return reverse ? left(key) : right(key) - 1;
+    }
+
+    private int ceilingIndex(int key) {
+        return reverse ? right(key) - 1 : left(key);
+    }
+
+    private int higherIndex(int key) {
+        return reverse ? left(key) - 1 : right(key);
+    }
+
+    public boolean contains(int key) {
+        int pos = left(key);
+        return pos < to && data[pos] == key;
+    }
+
+    public int lower(int key, int absent) {
+        return element(lowerIndex(key), absent);
+    }
+
+    public int floor(int key, int absent) {
+        return element(floorIndex(key), absent);
+    }
+
+    public int ceiling(int key, int absent) {
+        return element(ceilingIndex(key), absent);
+    }
+
+    public int higher(int key, int absent) {
+        return element(higherIndex(key), absent);
+    }
+
+    public int getInt(int index) {
+        Objects.checkIndex(index, size());
+        return data[reverse ? to - 1 - index : from + index];
+    }
+
+    public int firstInt() {
+        checkEmpty();
+        return getInt(0);
+    }
+
+    public int lastInt() {
+        checkEmpty();
+        return getInt(size() - 1);
+    }
+
+    public int[] toIntArray() {
+        int[] result = Arrays.copyOfRange(data, from, to);
+        if (reverse) {
+            for (int i = 0, j = result.length - 1; i < j; i++, j--) {
+                int tmp = result[i];
+                result[i] = result[j];
+                result[j] = tmp;
+            }
+        }
+        return result;
+    }
+
+    public PrimitiveIterator.OfInt intIterator() {
+        return new PrimitiveIterator.OfInt() {
+            private int cur = 0;
+
+            @Override
+            public boolean hasNext() {
+                return cur < size();
+            }
+
+            @Override
+            public int nextInt() {
+                if (cur < size()) {
+                    return getInt(cur++);
+                } else {
+                    throw new NoSuchElementException();
+                }
+            }
+        };
+    }
+
+    @Override
+    public Integer lower(Integer t) {
+        return element(lowerIndex(t));
+    }
+
+    @Override
+    public Integer floor(Integer t) {
+        return element(floorIndex(t));
+    }
+
+    @Override
+    public Integer ceiling(Integer t) {
+        return element(ceilingIndex(t));
+    }
+
+    @Override
+    public Integer higher(Integer t) {
+        return element(higherIndex(t));
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Integer value && contains((int) value);
+    }
+
+    @Override
+    public Integer pollFirst() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Integer pollLast() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+        return intIterator();
+    }
+
+    @Override
+    public IntArraySet descendingSet() {
+        return new IntArraySet(data, index, from, to, !reverse);
+    }
+
+    @Override
+    public Iterator<Integer> descendingIterator() {
+        return descendingSet().iterator();
+    }
+
+    private IntArraySet range(int fromIndex, int toIndex) {
+        return new IntArraySet(data, index, fromIndex, Math.max(fromIndex, toIndex), reverse);
+    }
+
+    private int compare(int first, int second) {
+        return reverse ? Integer.compare(second, first) : Integer.compare(first, second);
+    }
+
+    @Override
+    public IntArraySet subSet(Integer fromElement, boolean fromInclusive, Integer toElement, boolean toInclusive) {
+        if (compare(fromElement, toElement) > 0) {
+            throw new IllegalArgumentException();
+        }
+        return reverse
+                ? range(toInclusive ? left(toElement) : right(toElement), fromInclusive ? right(fromElement) : left(fromElement))
+                : range(fromInclusive ? left(fromElement) : right(fromElement), toInclusive ? right(toElement) : left(toElement));
+    }
+
+    @Override
+    public IntArraySet headSet(Integer toElement, boolean inclusive) {
+        return reverse
+                ? range(inclusive ? left(toElement) : right(toElement), to)
+                : range(from, inclusive ? right(toElement) : left(toElement));
+    }
+
+    @Override
+    public IntArraySet tailSet(Integer fromElement, boolean inclusive) {
+        return reverse
+                ? range(from, inclusive ? right(fromElement) : left(fromElement))
+                : range(inclusive ? left(fromElement) : right(fromElement), to);
+    }
+
+    @Override
+    public Comparator<? super Integer> comparator() {
+        return reverse ? Collections.reverseOrder() : null;
+    }
+
+    @Override
+    public SortedSet<Integer> subSet(Integer fromElement, Integer toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public SortedSet<Integer> headSet(Integer toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public SortedSet<Integer> tailSet(Integer fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public Integer first() {
+        return firstInt();
+    }
+
+    @Override
+    public Integer last() {
+        return lastInt();
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    private void checkEmpty() {
+        if (isEmpty()) throw new NoSuchElementException();
+    }
+
+    // Levels sample every BLOCK-th element of the level below, the last level being the set itself.
+    // A search scans one block of a cache line or two per level instead of halving the whole array,
+    // see the index mode of ArraySetBenchmark.
+    private static class SearchTree {
+        private final static int THRESHOLD = 1 << 16;
+        private final static int BLOCK = 16;
+
+        private final int[][] levels;
+
+        private SearchTree(int[] data) {
+            List<int[]> levels = new ArrayList<>();
+            levels.add(data);
+            for (int[] level = data; level.length > BLOCK; ) {
+                int[] samples = new int[(level.length + BLOCK - 1) / BLOCK];
+                for (int i = 0; i < samples.length; i++) {
+                    samples[i] = level[i * BLOCK];
+                }
+                levels.add(samples);
+                level = samples;
+            }
+            Collections.reverse(levels);
+            this.levels = levels.toArray(int[][]::new);
+        }
+
+        public static SearchTree of(int[] data) {
+            return data.length >= THRESHOLD ? new SearchTree(data) : null;
+        }
+
+        // Index of the first element not less than the key, as for Arrays.binarySearch over the whole array
+        public int lowerBound(int key) {
+            int pos = count(levels[0], 0, levels[0].length, key);
+            for (int i = 1; i < levels.length; i++) {
+                if (pos == 0) {
+                    return 0;
+                }
+                // Element (pos - 1) * BLOCK is less than the key and element pos * BLOCK is not, only the ones between remain
+                int[] level = levels[i];
+                int low = (pos - 1) * BLOCK + 1;
+                pos = count(level, low, Math.min(low + BLOCK - 1, level.length), key);
+            }
+            return pos;
+        }
+
+        // Counts without branches, the comparisons of a block are not predictable
+        private static int count(int[] level, int from, int to, int key) {
+            int pos = from;
+            for (int i = from; i < to; i++) {
+                pos += level[i] < key ? 1 : 0;
+            }
+            return pos;
+        }
+    }
+}
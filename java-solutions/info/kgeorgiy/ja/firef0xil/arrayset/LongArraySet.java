@@ -0,0 +1,338 @@
+package info.kgeorgiy.ja.firef0xil.arrayset;
+
+import java.util.*;
+
+// Views share the sorted array of the set they were created from
+public class LongArraySet extends AbstractSet<Long> implements NavigableSet<Long> {
+    private final long[] data;
+    private final SearchTree index;
+    private final int from;
+    private final int to;
+    private final boolean reverse;
+
+    public LongArraySet() {
+        this(new long[0], false);
+    }
+
+    public LongArraySet(long[] values) {
+        this(sortedDistinct(values.clone()), false);
+    }
+
+    public LongArraySet(Collection<Long> collection) {
+        this(toArray(collection), false);
+    }
+
+    private LongArraySet(long[] data, boolean reverse) {
+        this(data, SearchTree.of(data), 0, data.length, reverse);
+    }
+
+    private LongArraySet(long[] data, SearchTree index, int from, int to, boolean reverse) {
+        this.data = data;
+        this.index = index;
+        this.from = from;
+        this.to = to;
+        this.reverse = reverse;
+    }
+
+    private static long[] toArray(Collection<Long> collection) {
+        long[] values = new long[collection.size()];
+        int size = 0;
+        for (Long value : collection) {
+            values[size++] = value;
+        }
+        return sortedDistinct(size == values.length ? values : Arrays.copyOf(values, size));
+    }
+
+    private static long[] sortedDistinct(long[] values) {
+        Arrays.sort(values);
+        int size = Math.min(values.length, 1);
+        for (int i = 1; i < values.length; i++) {
+            if (values[i] != values[size - 1]) {
+                values[size++] = values[i];
+            }
+        }
+        return size == values.length ? values : Arrays.copyOf(values, size);
+    }
+
+    private int left(long key) {
+        if (index != null) {
+            return Math.min(Math.max(index.lowerBound(key), from), to);
+        }
+        int pos = Arrays.binarySearch(data, from, to, key);
+        return pos >= 0 ? pos : -pos - 1;
+    }
+
+    private int right(long key) {
+        if (index != null) {
+            return key == Long.MAX_VALUE ? to : left(key + 1);
+        }
+        int pos = Arrays.binarySearch(data, from, to, key);
+        return pos >= 0 ? pos + 1 : -pos - 1;
+    }
+
+    private long element(int index, long absent) {
+        return from <= index && index < to ? data[index] : absent;
+    }
+
+    private Long element(int index) {
+        return from <= index && index < to ? data[index] : null;
+    }
+
+    private int lowerIndex(long key) {
+        return reverse ? right(key) : left(key) - 1;
+    }
+
+    private int floorIndex(long key) {
+        return reverse ? left(key) : right(key) - 1;
+    }
+
+    private int ceilingIndex(long key) {
+        return reverse ? right(key) - 1 : left(key);
+    }
+
+    private int higherIndex(long key) {
+        return reverse ? left(key) - 1 : right(key);
+    }
+
+    public boolean contains(long key) {
+        int pos = left(key);
+        return pos < to && data[pos] == key;
+    }
+
+    public long lower(long key, long absent) {
+        return element(lowerIndex(key), absent);
+    }
+
+    public long floor(long key, long absent) {
+        return element(floorIndex(key), absent);
+    }
+
+    public long ceiling(long key, long absent) {
+        return element(ceilingIndex(key), absent);
+    }
+
+    public long higher(long key, long absent) {
+        return element(higherIndex(key), absent);
+    }
+
+    public long getLong(int index) {
+        Objects.checkIndex(index, size());
+        return data[reverse ? to - 1 - index : from + index];
+    }
+
+    public long firstLong() {
+        checkEmpty();
+        return getLong(0);
+    }
+
+    public long lastLong() {
+        checkEmpty();
+        return getLong(size() - 1);
+    }
+
+    public long[] toLongArray() {
+        long[] result = Arrays.copyOfRange(data, from, to);
+        if (reverse) {
+            for (int i = 0, j = result.length - 1; i < j; i++, j--) {
+                long tmp = result[i];
+                result[i] = result[j];
+                result[j] = tmp;
+            }
+        }
+        return result;
+    }
+
+    public PrimitiveIterator.OfLong longIterator() {
+        return new PrimitiveIterator.OfLong() {
+            private int cur = 0;
+
+            @Override
+            public boolean hasNext() {
+                return cur < size();
+            }
+
+            @Override
+            public long nextLong() {
+                if (cur < size()) {
+                    return getLong(cur++);
+                } else {
+                    throw new NoSuchElementException();
+                }
+            }
+        };
+    }
+
+    @Override
+    public Long lower(Long t) {
+        return element(lowerIndex(t));
+    }
+
+    @Override
+    public Long floor(Long t) {
+        return element(floorIndex(t));
+    }
+
+    @Override
+    public Long ceiling(Long t) {
+        return element(ceilingIndex(t));
+    }
+
+    @Override
+    public Long higher(Long t) {
+        return element(higherIndex(t));
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Long value && contains((long) value);
+    }
+
+    @Override
+    public Long pollFirst() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Long pollLast() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Iterator<Long> iterator() {
+        return longIterator();
+    }
+
+    @Override
+    public LongArraySet descendingSet() {
+        return new LongArraySet(data, index, from, to, !reverse);
+    }
+
+    @Override
+    public Iterator<Long> descendingIterator() {
+        return descendingSet().iterator();
+    }
+
+    private LongArraySet range(int fromIndex, int toIndex) {
+        return new LongArraySet(data, index, fromIndex, Math.max(fromIndex, toIndex), reverse);
+    }
+
+    private int compare(long first, long second) {
+        return reverse ? Long.compare(second, first) : Long.compare(first, second);
+    }
+
+    @Override
+    public LongArraySet subSet(Long fromElement, boolean fromInclusive, Long toElement, boolean toInclusive) {
+        if (compare(fromElement, toElement) > 0) {
+            throw new IllegalArgumentException();
+        }
+        return reverse
+                ? range(toInclusive ? left(toElement) : right(toElement), fromInclusive ? right(fromElement) : left(fromElement))
+                : range(fromInclusive ? left(fromElement) : right(fromElement), toInclusive ? right(toElement) : left(toElement));
+    }
+
+    @Override
+    public LongArraySet headSet(Long toElement, boolean inclusive) {
+        return reverse
+                ? range(inclusive ? left(toElement) : right(toElement), to)
+                : range(from, inclusive ? right(toElement) : left(toElement));
+    }
+
+    @Override
+    public LongArraySet tailSet(Long fromElement, boolean inclusive) {
+        return reverse
+                ? range(from, inclusive ? right(fromElement) : left(fromElement))
+                : range(inclusive ? left(fromElement) : right(fromElement), to);
+    }
+
+    @Override
+    public Comparator<? super Long> comparator() {
+        return reverse ? Collections.reverseOrder() : null;
+    }
+
+    @Override
+    public SortedSet<Long> subSet(Long fromElement, Long toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public SortedSet<Long> headSet(Long toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public SortedSet<Long> tailSet(Long fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public Long first() {
+        return firstLong();
+    }
+
+    @Override
+    public Long last() {
+        return lastLong();
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    private void checkEmpty() {
+        if (isEmpty()) throw new NoSuchElementException();
+    }
+
+    // Levels sample every BLOCK-th element of the level below, the last level being the set itself.
+    // A search scans one block of a cache line or two per level instead of halving the whole array,
+    // see the index mode of ArraySetBenchmark.
+    private static class SearchTree {
+        private final static int THRESHOLD = 1 << 16;
+        private final static int BLOCK = 16;
+
+        private final long[][] levels;
+
+        private SearchTree(long[] data) {
+            List<long[]> levels = new ArrayList<>();
+            levels.add(data);
+            for (long[] level = data; level.length > BLOCK; ) {
+                long[] samples = new long[(level.length + BLOCK - 1) / BLOCK];
+                for (int i = 0; i < samples.length; i++) {
+                    samples[i] = level[i * BLOCK];
+                }
+                levels.add(samples);
+                level = samples;
+            }
+            Collections.reverse(levels);
+            this.levels = levels.toArray(long[][]::new);
+        }
+
+        public static SearchTree of(long[] data) {
+            return data.length >= THRESHOLD ? new SearchTree(data) : null;
+        }
+
+        // Index of the first element not less than the key, as for Arrays.binarySearch over the whole array
+        public int lowerBound(long key) {
+            int pos = count(levels[0], 0, levels[0].length, key);
+            for (int i = 1; i < levels.length; i++) {
+                if (pos == 0) {
+                    return 0;
+                }
+                // Element (pos - 1) * BLOCK is less than the key and element pos * BLOCK is not, only the ones between remain
+                long[] level = levels[i];
+                int low = (pos - 1) * BLOCK + 1;
+                pos = count(level, low, Math.min(low + BLOCK - 1, level.length), key);
+            }
+            return pos;
+        }
+
+        // Counts without branches, the comparisons of a block are not predictable
+        private static int count(long[] level, int from, int to, long key) {
+            int pos = from;
+            for (int i = from; i < to; i++) {
+                pos += level[i] < key ? 1 : 0;
+            }
+            return pos;
+        }
+    }
+}
@@ -0,0 +1,420 @@
+package info.kgeorgiy.ja.firef0xil.arrayset;
+
+import java.util.*;
+
+// Updates return a new version copying only the changed chunk and the table of chunk references,
+// other chunks are shared with the old version, which stays valid; range views are read-only
+public class PersistentArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
+    private final static int CHUNK = 512;
+    private final static int MAX_CHUNK = 2 * CHUNK;
+    private final static int MIN_CHUNK = CHUNK / 4;
+    private final static Object[][] EMPTY = new Object[0][];
+
+    private final Object[][] chunks;
+    // offsets[i] is the number of elements before chunk i, offsets[chunks.length] is the total size
+    private final int[] offsets;
+    private final Comparator<? super T> comparator;
+    private final int from;
+    private final int to;
+    private final boolean reverse;
+    private final boolean view;
+
+    public PersistentArraySet() {
+        this(Collections.emptyList(), null);
+    }
+
+    public PersistentArraySet(Collection<? extends T> collection) {
+        this(collection, null);
+    }
+
+    public PersistentArraySet(Comparator<? super T> comparator) {
+        this(Collections.emptyList(), comparator);
+    }
+
+    public PersistentArraySet(Collection<? extends T> collection, Comparator<? super T> comparator) {
+        this(split(new ArraySet<>(collection, comparator).toArray()), comparator, false);
+    }
+
+    private PersistentArraySet(Object[][] chunks, Comparator<? super T> comparator, boolean reverse) {
+        this(chunks, offsets(chunks), comparator, reverse);
+    }
+
+    private PersistentArraySet(Object[][] chunks, int[] offsets, Comparator<? super T> comparator, boolean reverse) {
+        this(chunks, offsets, comparator, 0, offsets[chunks.length], reverse, false);
+    }
+
+    private PersistentArraySet(Object[][] chunks, int[] offsets, Comparator<? super T> comparator,
+                               int from, int to, boolean reverse, boolean view) {
+        this.chunks = chunks;
+        this.offsets = offsets;
+        this.comparator = comparator;
+        this.from = from;
+        this.to = to;
+        this.reverse = reverse;
+        this.view = view;
+    }
+
+    private static Object[][] split(Object[] elements) {
+        return split(elements, elements.length).toArray(EMPTY);
+    }
+
+    private static List<Object[]> split(Object[] elements, int size) {
+        List<Object[]> result = new ArrayList<>();
+        int count = (size + CHUNK - 1) / CHUNK;
+        for (int i = 0; i < count; i++) {
+            result.add(Arrays.copyOfRange(elements, (int) ((long) size * i / count), (int) ((long) size * (i + 1) / count)));
+        }
+        return result;
+    }
+
+    private static int[] offsets(Object[][] chunks) {
+        int[] offsets = new int[chunks.length + 1];
+        for (int i = 0; i < chunks.length; i++) {
+            offsets[i + 1] = offsets[i] + chunks[i].length;
+        }
+        return offsets;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compareAscending(Object first, T second) {
+        return comparator == null
+                ? ((Comparable<? super T>) first).compareTo(second)
+                : comparator.compare((T) first, second);
+    }
+
+    private int compare(T first, T second) {
+        return reverse ? compareAscending(second, first) : compareAscending(first, second);
+    }
+
+    private int chunkOf(int index) {
+        int pos = Arrays.binarySearch(offsets, 0, chunks.length, index);
+        return pos >= 0 ? pos : -pos - 2;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T element(int index) {
+        int chunk = chunkOf(index);
+        return (T) chunks[chunk][index - offsets[chunk]];
+    }
+
+    // Arrays.binarySearch over all elements of the version in ascending order
+    @SuppressWarnings("unchecked")
+    private int search(T key) {
+        int low = 0;
+        int high = chunks.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (compareAscending(chunks[middle][0], key) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        if (high < 0) {
+            return -1;
+        }
+        int pos = Arrays.binarySearch((T[]) chunks[high], key, comparator);
+        return pos >= 0 ? offsets[high] + pos : pos - offsets[high];
+    }
+
+    private int clamp(int index) {
+        return Math.min(Math.max(index, from), to);
+    }
+
+    private int left(T key) {
+        int pos = search(key);
+        return clamp(pos >= 0 ? pos : -pos - 1);
+    }
+
+    private int right(T key) {
+        int pos = search(key);
+        return clamp(pos >= 0 ? pos + 1 : -pos - 1);
+    }
+
+    private T elementOrNull(int index) {
+        return from <= index && index < to ? element(index) : null;
+    }
+
+    private int lowerIndex(T key) {
+        return reverse ? right(key) : left(key) - 1;
+    }
+
+    private int floorIndex(T key) {
+        return reverse ? left(key) : right(key) - 1;
+    }
+
+    private int ceilingIndex(T key) {
+        return reverse ? right(key) - 1 : left(key);
+    }
+
+    private int higherIndex(T key) {
+        return reverse ? left(key) - 1 : right(key);
+    }
+
+    private void checkUpdatable() {
+        if (view) {
+            throw new UnsupportedOperationException("Range views are read-only");
+        }
+    }
+
+    private PersistentArraySet<T> replace(int start, int count, Object[]... pieces) {
+        Object[][] result = new Object[chunks.length - count + pieces.length][];
+        System.arraycopy(chunks, 0, result, 0, start);
+        System.arraycopy(pieces, 0, result, start, pieces.length);
+        System.arraycopy(chunks, start + count, result, start + pieces.length, chunks.length - start - count);
+        return new PersistentArraySet<>(result, comparator, reverse);
+    }
+
+    private static Object[][] pieces(Object[] elements) {
+        if (elements.length <= MAX_CHUNK) {
+            return new Object[][]{elements};
+        }
+        int middle = elements.length / 2;
+        return new Object[][]{Arrays.copyOfRange(elements, 0, middle), Arrays.copyOfRange(elements, middle, elements.length)};
+    }
+
+    public PersistentArraySet<T> with(T element) {
+        checkUpdatable();
+        int pos = search(element);
+        if (pos >= 0) {
+            return this;
+        }
+        if (chunks.length == 0) {
+            return replace(0, 0, new Object[]{element});
+        }
+        int index = -pos - 1;
+        int chunk = chunkOf(Math.min(index, offsets[chunks.length] - 1));
+        Object[] source = chunks[chunk];
+        int inner = index - offsets[chunk];
+        Object[] updated = new Object[source.length + 1];
+        System.arraycopy(source, 0, updated, 0, inner);
+        updated[inner] = element;
+        System.arraycopy(source, inner, updated, inner + 1, source.length - inner);
+        return replace(chunk, 1, pieces(updated));
+    }
+
+    public PersistentArraySet<T> without(T element) {
+        checkUpdatable();
+        int pos = search(element);
+        if (pos < 0) {
+            return this;
+        }
+        int chunk = chunkOf(pos);
+        Object[] source = chunks[chunk];
+        int inner = pos - offsets[chunk];
+        Object[] updated = new Object[source.length - 1];
+        System.arraycopy(source, 0, updated, 0, inner);
+        System.arraycopy(source, inner + 1, updated, inner, updated.length - inner);
+        if (updated.length == 0) {
+            return replace(chunk, 1);
+        }
+        if (updated.length >= MIN_CHUNK || chunks.length == 1) {
+            return replace(chunk, 1, updated);
+        }
+        int first = chunk + 1 < chunks.length ? chunk : chunk - 1;
+        Object[] left = first == chunk ? updated : chunks[first];
+        Object[] right = first == chunk ? chunks[chunk + 1] : updated;
+        Object[] merged = Arrays.copyOf(left, left.length + right.length);
+        System.arraycopy(right, 0, merged, left.length, right.length);
+        return replace(first, 2, pieces(merged));
+    }
+
+    // Chunks that get no new elements are shared with this version
+    @SuppressWarnings("unchecked")
+    public PersistentArraySet<T> withAll(Collection<? extends T> collection) {
+        checkUpdatable();
+        Object[] added = new ArraySet<>(collection, comparator).toArray();
+        if (added.length == 0) {
+            return this;
+        }
+        List<Object[]> result = new ArrayList<>();
+        int next = 0;
+        for (int chunk = 0; chunk < chunks.length || next < added.length; chunk++) {
+            Object[] source = chunk < chunks.length ? chunks[chunk] : new Object[0];
+            int end = next;
+            while (end < added.length && (chunk >= chunks.length - 1 || compareAscending(added[end], (T) chunks[chunk + 1][0]) < 0)) {
+                end++;
+            }
+            if (end == next) {
+                result.add(source);
+                continue;
+            }
+            Object[] merged = new Object[source.length + end - next];
+            int size = 0;
+            int i = 0;
+            while (i < source.length || next < end) {
+                int order = i == source.length ? 1 : next == end ? -1 : compareAscending(source[i], (T) added[next]);
+                if (order <= 0) {
+                    merged[size++] = source[i++];
+                    next += order == 0 ? 1 : 0;
+                } else {
+                    merged[size++] = added[next++];
+                }
+            }
+            if (size <= MAX_CHUNK) {
+                result.add(Arrays.copyOf(merged, size));
+            } else {
+                result.addAll(split(merged, size));
+            }
+        }
+        return new PersistentArraySet<>(result.toArray(EMPTY), comparator, reverse);
+    }
+
+    public PersistentArraySet<T> withoutFirst() {
+        return without(first());
+    }
+
+    public PersistentArraySet<T> withoutLast() {
+        return without(last());
+    }
+
+    @Override
+    public T lower(T t) {
+        return elementOrNull(lowerIndex(t));
+    }
+
+    @Override
+    public T floor(T t) {
+        return elementOrNull(floorIndex(t));
+    }
+
+    @Override
+    public T ceiling(T t) {
+        return elementOrNull(ceilingIndex(t));
+    }
+
+    @Override
+    public T higher(T t) {
+        return elementOrNull(higherIndex(t));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean contains(Object o) {
+        int pos = search((T) o);
+        return from <= pos && pos < to;
+    }
+
+    @Override
+    public T pollFirst() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public T pollLast() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            private int index = reverse ? to - 1 : from;
+            private int chunk = size() == 0 ? 0 : chunkOf(index);
+            private int remaining = size();
+
+            @Override
+            public boolean hasNext() {
+                return remaining > 0;
+            }
+
+            @SuppressWarnings("unchecked")
+            @Override
+            public T next() {
+                if (remaining == 0) {
+                    throw new NoSuchElementException();
+                }
+                remaining--;
+                T result = (T) chunks[chunk][index - offsets[chunk]];
+                if (reverse) {
+                    if (--index < offsets[chunk]) {
+                        chunk--;
+                    }
+                } else {
+                    if (++index == offsets[chunk + 1]) {
+                        chunk++;
+                    }
+                }
+                return result;
+            }
+        };
+    }
+
+    @Override
+    public PersistentArraySet<T> descendingSet() {
+        return new PersistentArraySet<>(chunks, offsets, comparator, from, to, !reverse, view);
+    }
+
+    @Override
+    public Iterator<T> descendingIterator() {
+        return descendingSet().iterator();
+    }
+
+    private PersistentArraySet<T> range(int fromIndex, int toIndex) {
+        return new PersistentArraySet<>(chunks, offsets, comparator, fromIndex, Math.max(fromIndex, toIndex), reverse, true);
+    }
+
+    @Override
+    public PersistentArraySet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+        if (compare(fromElement, toElement) > 0) {
+            throw new IllegalArgumentException();
+        }
+        return reverse
+                ? range(toInclusive ? left(toElement) : right(toElement), fromInclusive ? right(fromElement) : left(fromElement))
+                : range(fromInclusive ? left(fromElement) : right(fromElement), toInclusive ? right(toElement) : left(toElement));
+    }
+
+    @Override
+    public PersistentArraySet<T> headSet(T toElement, boolean inclusive) {
+        return reverse
+                ? range(inclusive ? left(toElement) : right(toElement), to)
+                : range(from, inclusive ? right(toElement) : left(toElement));
+    }
+
+    @Override
+    public PersistentArraySet<T> tailSet(T fromElement, boolean inclusive) {
+        return reverse
+                ? range(from, inclusive ? right(fromElement) : left(fromElement))
+                : range(inclusive ? left(fromElement) : right(fromElement), to);
+    }
+
+    @Override
+    public Comparator<? super T> comparator() {
+        return reverse ? Collections.reverseOrder(comparator) : comparator;
+    }
+
+    @Override
+    public SortedSet<T> subSet(T fromElement, T toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public SortedSet<T> headSet(T toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public SortedSet<T> tailSet(T fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public T first() {
+        checkEmpty();
+        return element(reverse ? to - 1 : from);
+    }
+
+    @Override
+    public T last() {
+        checkEmpty();
+        return element(reverse ? from : to - 1);
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    private void checkEmpty() {
+        if (isEmpty()) throw new NoSuchElementException();
+    }
+}
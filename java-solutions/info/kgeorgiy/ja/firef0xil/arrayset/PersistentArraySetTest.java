@@ -0,0 +1,150 @@
+package info.kgeorgiy.ja.firef0xil.arrayset;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class PersistentArraySetTest {
+    private final static int RANGE = 5000;
+    private final static int OPERATIONS = 3000;
+    private final static int VERSION_STEP = 300;
+
+    private final Random random = new Random(3457823465234752346L);
+
+    private static TreeSet<Integer> copy(Collection<Integer> collection, Comparator<? super Integer> comparator) {
+        TreeSet<Integer> result = new TreeSet<>(comparator);
+        result.addAll(collection);
+        return result;
+    }
+
+    private void check(NavigableSet<Integer> expected, NavigableSet<Integer> actual, int depth) {
+        assertEquals(new ArrayList<>(expected), new ArrayList<>(actual));
+        assertEquals(expected.size(), actual.size());
+        List<Integer> descending = new ArrayList<>();
+        actual.descendingIterator().forEachRemaining(descending::add);
+        assertEquals(new ArrayList<>(expected.descendingSet()), descending);
+        for (int i = 0; i < 50; i++) {
+            int key = random.nextInt(RANGE + 1000) - 500;
+            assertEquals(expected.lower(key), actual.lower(key));
+            assertEquals(expected.floor(key), actual.floor(key));
+            assertEquals(expected.ceiling(key), actual.ceiling(key));
+            assertEquals(expected.higher(key), actual.higher(key));
+            assertEquals(expected.contains(key), actual.contains(key));
+        }
+        if (depth > 0) {
+            int from = random.nextInt(RANGE);
+            int to = random.nextInt(RANGE);
+            Comparator<? super Integer> comparator = Objects.requireNonNullElse(
+                    expected.comparator(), Comparator.naturalOrder());
+            if (comparator.compare(from, to) > 0) {
+                int swap = from;
+                from = to;
+                to = swap;
+            }
+            boolean fromInclusive = random.nextBoolean();
+            boolean toInclusive = random.nextBoolean();
+            // Copies, since views of TreeSet reject keys out of their range
+            Comparator<? super Integer> order = expected.comparator();
+            check(copy(expected.subSet(from, fromInclusive, to, toInclusive), order),
+                    actual.subSet(from, fromInclusive, to, toInclusive), depth - 1);
+            check(copy(expected.headSet(to, toInclusive), order), actual.headSet(to, toInclusive), depth - 1);
+            check(copy(expected.tailSet(from, fromInclusive), order), actual.tailSet(from, fromInclusive), depth - 1);
+            check(copy(expected.descendingSet(), expected.descendingSet().comparator()),
+                    actual.descendingSet(), depth - 1);
+        }
+    }
+
+    private List<Integer> randomList(int size) {
+        List<Integer> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(random.nextInt(RANGE));
+        }
+        return result;
+    }
+
+    private void test(Comparator<Integer> comparator, boolean descending) {
+        List<Integer> initial = randomList(random.nextInt(4000));
+        PersistentArraySet<Integer> set = new PersistentArraySet<>(initial, comparator);
+        TreeSet<Integer> expected = copy(initial, comparator);
+        if (descending) {
+            set = set.descendingSet();
+        }
+        List<PersistentArraySet<Integer>> versions = new ArrayList<>();
+        List<NavigableSet<Integer>> snapshots = new ArrayList<>();
+        for (int i = 0; i < OPERATIONS; i++) {
+            int element = random.nextInt(RANGE);
+            switch (random.nextInt(6)) {
+                case 0, 1 -> {
+                    set = set.with(element);
+                    expected.add(element);
+                }
+                case 2, 3 -> {
+                    set = set.without(element);
+                    expected.remove(element);
+                }
+                case 4 -> {
+                    if (!expected.isEmpty()) {
+                        set = set.withoutFirst();
+                        if (descending) {
+                            expected.pollLast();
+                        } else {
+                            expected.pollFirst();
+                        }
+                    }
+                }
+                default -> {
+                    List<Integer> added = randomList(random.nextInt(random.nextBoolean() ? 5 : 2000));
+                    set = set.withAll(added);
+                    expected.addAll(added);
+                }
+            }
+            if (i % VERSION_STEP == 0) {
+                versions.add(set);
+                snapshots.add(copy(expected, comparator));
+            }
+        }
+        check(descending ? expected.descendingSet() : expected, set, 2);
+        for (int i = 0; i < versions.size(); i++) {
+            NavigableSet<Integer> snapshot = snapshots.get(i);
+            check(descending ? snapshot.descendingSet() : snapshot, versions.get(i), 1);
+        }
+    }
+
+    @Test
+    public void test1_naturalOrder() {
+        for (int i = 0; i < 10; i++) {
+            test(null, false);
+        }
+    }
+
+    @Test
+    public void test2_descending() {
+        for (int i = 0; i < 10; i++) {
+            test(null, true);
+        }
+    }
+
+    @Test
+    public void test3_comparator() {
+        for (int i = 0; i < 10; i++) {
+            test(Comparator.reverseOrder(), i % 2 == 0);
+        }
+    }
+
+    @Test
+    public void test4_unchanged() {
+        PersistentArraySet<Integer> set = new PersistentArraySet<>(List.of(1, 2, 3));
+        assertSame(set, set.with(2));
+        assertSame(set, set.without(4));
+        assertSame(set, set.withAll(List.of()));
+        assertEquals(List.of(1, 2, 3), new ArrayList<>(set.with(4).without(4)));
+        assertEquals(List.of(1, 2, 3), new ArrayList<>(set));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void test5_readOnlyViews() {
+        new PersistentArraySet<>(List.of(1, 2, 3)).headSet(2, true).with(0);
+    }
+}
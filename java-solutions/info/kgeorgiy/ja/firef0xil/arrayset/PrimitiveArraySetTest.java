@@ -0,0 +1,93 @@
+package info.kgeorgiy.ja.firef0xil.arrayset;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class PrimitiveArraySetTest {
+    // Large enough for the search index
+    private final static int SIZE = 200_000;
+    private final static int PROBES = 20_000;
+
+    private final Random random = new Random(5830498503948503945L);
+
+    private static void assertSame(NavigableSet<Integer> expected, IntArraySet set, int key) {
+        assertEquals(expected.lower(key), set.lower(key));
+        assertEquals(expected.floor(key), set.floor(key));
+        assertEquals(expected.ceiling(key), set.ceiling(key));
+        assertEquals(expected.higher(key), set.higher(key));
+        assertEquals(expected.contains(key), set.contains(key));
+    }
+
+    private static void assertSame(NavigableSet<Long> expected, LongArraySet set, long key) {
+        assertEquals(expected.lower(key), set.lower(key));
+        assertEquals(expected.floor(key), set.floor(key));
+        assertEquals(expected.ceiling(key), set.ceiling(key));
+        assertEquals(expected.higher(key), set.higher(key));
+        assertEquals(expected.contains(key), set.contains(key));
+    }
+
+    private void test(int range) {
+        int[] values = random.ints(SIZE, -range, range).toArray();
+        values[0] = Integer.MIN_VALUE;
+        values[1] = Integer.MAX_VALUE;
+        NavigableSet<Integer> expected = new TreeSet<>();
+        Arrays.stream(values).forEach(expected::add);
+        IntArraySet set = new IntArraySet(values);
+        int from = random.nextInt(range);
+        NavigableSet<Integer> expectedView = expected.subSet(-from, true, from, false).descendingSet();
+        IntArraySet view = set.subSet(-from, true, from, false).descendingSet();
+        for (int key : new int[]{Integer.MIN_VALUE, Integer.MIN_VALUE + 1, Integer.MAX_VALUE - 1, Integer.MAX_VALUE}) {
+            assertSame(expected, set, key);
+            assertSame(expectedView, view, key);
+        }
+        for (int i = 0; i < PROBES; i++) {
+            int key = random.nextInt(-range - 10, range + 10);
+            assertSame(expected, set, key);
+            assertSame(expectedView, view, key);
+        }
+    }
+
+    private void testLong(long range) {
+        long[] values = random.longs(SIZE, -range, range).toArray();
+        values[0] = Long.MIN_VALUE;
+        values[1] = Long.MAX_VALUE;
+        NavigableSet<Long> expected = new TreeSet<>();
+        Arrays.stream(values).forEach(expected::add);
+        LongArraySet set = new LongArraySet(values);
+        long from = random.nextLong(range);
+        NavigableSet<Long> expectedView = expected.subSet(-from, false, from, true).descendingSet();
+        LongArraySet view = set.subSet(-from, false, from, true).descendingSet();
+        for (long key : new long[]{Long.MIN_VALUE, Long.MIN_VALUE + 1, Long.MAX_VALUE - 1, Long.MAX_VALUE}) {
+            assertSame(expected, set, key);
+            assertSame(expectedView, view, key);
+        }
+        for (int i = 0; i < PROBES; i++) {
+            long key = random.nextLong(-range - 10, range + 10);
+            assertSame(expected, set, key);
+            assertSame(expectedView, view, key);
+        }
+    }
+
+    @Test
+    public void test1_intDense() {
+        test(SIZE / 2);
+    }
+
+    @Test
+    public void test2_intSparse() {
+        test(Integer.MAX_VALUE / 2);
+    }
+
+    @Test
+    public void test3_longDense() {
+        testLong(SIZE / 2);
+    }
+
+    @Test
+    public void test4_longSparse() {
+        testLong(Long.MAX_VALUE / 2);
+    }
+}
@@ -0,0 +1,56 @@
+package info.kgeorgiy.ja.firef0xil.walk;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Supplier;
+
+// Entries are reported as <archive>!/<entry> in the order of the archive directory,
+// archives that cannot be opened have no entries
+public class ArchiveHasher {
+    private final static Set<String> EXTENSIONS = Set.of(".zip", ".jar", ".war", ".ear");
+
+    private final ThreadLocal<HashImplementation> hashers;
+
+    public record Entry(String path, String hash) {
+    }
+
+    public ArchiveHasher(Supplier<HashImplementation> hashers) {
+        this.hashers = ThreadLocal.withInitial(hashers);
+    }
+
+    public static boolean isArchive(String file) {
+        int dot = file.lastIndexOf('.');
+        return dot >= 0 && EXTENSIONS.contains(file.substring(dot).toLowerCase(Locale.ROOT));
+    }
+
+    public List<Entry> hash(String archive) {
+        HashImplementation hasher = hashers.get();
+        List<Entry> result = new ArrayList<>();
+        try (FileSystem zip = FileSystems.newFileSystem(Path.of(archive))) {
+            for (Path root : zip.getRootDirectories()) {
+                Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult visitFile(Path entry, BasicFileAttributes attrs) {
+                        result.add(new Entry(archive + "!" + entry, hasher.hashStream(entry)));
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path entry, IOException exc) {
+                        result.add(new Entry(archive + "!" + entry, hasher.getZeroHash()));
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            }
+        } catch (NoSuchFileException ignored) {
+        } catch (IOException | InvalidPathException | ProviderNotFoundException | SecurityException e) {
+            System.err.println("Archive '" + archive + "' cannot be read: " + e.getMessage());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,163 @@
+package info.kgeorgiy.ja.firef0xil.walk;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// Encodes lines straight into pooled byte buffers written by a dedicated thread,
+// the caller waits only when all buffers are queued for writing
+public class AsyncWriter implements ManifestWriter, AutoCloseable {
+    private final static int BUFFER_LENGTH = 256 * 1024;
+    private final static int BUFFERS = 4;
+    private final static ByteBuffer END = ByteBuffer.allocate(0);
+    private final static char[] LINE_SEPARATOR = System.lineSeparator().toCharArray();
+    private final static char[] SPACE = {' '};
+
+    private final FileChannel channel;
+    private final String zeroHash;
+    private final boolean fsync;
+    private final WalkStats stats;
+    // Reports unencodable names like Files.newBufferedWriter used by Writer does
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT);
+    private final BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(BUFFERS);
+    private final BlockingQueue<ByteBuffer> full = new ArrayBlockingQueue<>(BUFFERS + 1);
+    private final Thread writer;
+    private volatile IOException error;
+    private ByteBuffer buffer;
+
+    public AsyncWriter(Path output, String zeroHash, boolean fsync, WalkStats stats) throws IOException {
+        this.channel = FileChannel.open(output,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.zeroHash = zeroHash;
+        this.fsync = fsync;
+        this.stats = stats;
+        for (int i = 1; i < BUFFERS; i++) {
+            free.add(ByteBuffer.allocateDirect(BUFFER_LENGTH));
+        }
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_LENGTH);
+        this.writer = new Thread(this::drain, "walk-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                ByteBuffer next = full.take();
+                if (next == END) {
+                    return;
+                }
+                try {
+                    if (error == null) {
+                        while (next.hasRemaining()) {
+                            channel.write(next);
+                        }
+                    }
+                } catch (IOException e) {
+                    error = e;
+                }
+                next.clear();
+                free.add(next);
+            }
+        } catch (InterruptedException e) {
+            error = new InterruptedIOException("Output writer was interrupted");
+        }
+    }
+
+    private void checkError() throws IOException {
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private void submit() throws IOException {
+        checkError();
+        buffer.flip();
+        try {
+            full.put(buffer);
+            buffer = free.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for output buffer");
+        }
+    }
+
+    private void put(CharBuffer chars) throws IOException {
+        encoder.reset();
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, true);
+            if (result.isOverflow()) {
+                submit();
+            } else if (result.isError()) {
+                result.throwException();
+            } else {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void writeHash(String file, String hash) throws IOException {
+        long start = stats.start();
+        put(CharBuffer.wrap(hash));
+        put(CharBuffer.wrap(SPACE));
+        put(CharBuffer.wrap(file));
+        put(CharBuffer.wrap(LINE_SEPARATOR));
+        stats.record(WalkStats.Phase.WRITE, start);
+        stats.written();
+    }
+
+    @Override
+    public void writeSeparator() throws IOException {
+        put(CharBuffer.wrap(LINE_SEPARATOR));
+    }
+
+    @Override
+    public String getZeroHash() {
+        return zeroHash;
+    }
+
+    private void join() {
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (channel) {
+            try {
+                if (buffer.position() > 0) {
+                    submit();
+                }
+            } finally {
+                full.add(END);
+                join();
+            }
+            checkError();
+            if (fsync) {
+                channel.force(true);
+            }
+        }
+    }
+}
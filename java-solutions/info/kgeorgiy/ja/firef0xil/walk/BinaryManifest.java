@@ -0,0 +1,245 @@
+package info.kgeorgiy.ja.firef0xil.walk;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+// Big-endian header MAGIC, VERSION, columns, column lengths..., tree segment, count,
+// records offset, strings offset, digest index offset, path index offset,
+// then fixed-width records (digest, flags, path offset, path length) in walk order,
+// the UTF-8 string table of paths, and int indices of record numbers sorted by digest and by path bytes
+public class BinaryManifest implements AutoCloseable {
+    public final static int MAGIC = 0x574d4231;
+    public final static int VERSION = 1;
+    public final static byte TREE = 1;
+    public final static byte FAILED = 2;
+
+    private final static int REGION_BITS = 30;
+    private final static long REGION_MASK = (1L << REGION_BITS) - 1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] regions;
+    private final int[] lengths;
+    private final int digestLength;
+    private final int recordLength;
+    private final long treeSegment;
+    private final long count;
+    private final long recordsOffset;
+    private final long stringsOffset;
+    private final long digestIndexOffset;
+    private final long pathIndexOffset;
+    private final HexFormat formatter = HexFormat.of();
+
+    private BinaryManifest(FileChannel channel) throws IOException {
+        this.channel = channel;
+        long size = channel.size();
+        regions = new MappedByteBuffer[(int) ((size + REGION_MASK) >>> REGION_BITS)];
+        for (int i = 0; i < regions.length; i++) {
+            long position = (long) i << REGION_BITS;
+            regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(REGION_MASK + 1, size - position));
+        }
+        if (size < 12 || getInt(0) != MAGIC || getInt(4) != VERSION) {
+            throw new StreamCorruptedException("Not a binary manifest");
+        }
+        int columns = getInt(8);
+        if (columns < 1 || headerLength(columns) > size) {
+            throw new StreamCorruptedException("Corrupted binary manifest header");
+        }
+        lengths = new int[columns];
+        int digest = 0;
+        for (int i = 0; i < columns; i++) {
+            lengths[i] = getInt(12 + 4L * i);
+            digest += lengths[i];
+        }
+        digestLength = digest;
+        recordLength = recordLength(digest);
+        long position = 12 + 4L * columns;
+        treeSegment = getLong(position);
+        count = getLong(position + 8);
+        recordsOffset = getLong(position + 16);
+        stringsOffset = getLong(position + 24);
+        digestIndexOffset = getLong(position + 32);
+        pathIndexOffset = getLong(position + 40);
+        if (recordsOffset + count * recordLength > stringsOffset || stringsOffset > size) {
+            throw new StreamCorruptedException("Corrupted binary manifest header");
+        }
+    }
+
+    public static BinaryManifest open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new BinaryManifest(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    static long headerLength(int columns) {
+        return 12 + 4L * columns + 48;
+    }
+
+    static int recordLength(int digestLength) {
+        return digestLength + 1 + Long.BYTES + Integer.BYTES;
+    }
+
+    private byte getByte(long position) {
+        return regions[(int) (position >>> REGION_BITS)].get((int) (position & REGION_MASK));
+    }
+
+    private int getInt(long position) {
+        MappedByteBuffer region = regions[(int) (position >>> REGION_BITS)];
+        int offset = (int) (position & REGION_MASK);
+        if (offset + Integer.BYTES <= region.limit()) {
+            return region.getInt(offset);
+        }
+        int result = 0;
+        for (int i = 0; i < Integer.BYTES; i++) {
+            result = (result << 8) | (getByte(position + i) & 0xff);
+        }
+        return result;
+    }
+
+    private long getLong(long position) {
+        return ((long) getInt(position) << 32) | (getInt(position + Integer.BYTES) & 0xffffffffL);
+    }
+
+    private long record(long index) {
+        return recordsOffset + index * recordLength;
+    }
+
+    public long size() {
+        return count;
+    }
+
+    public long getTreeSegment() {
+        return treeSegment;
+    }
+
+    public byte[] digest(long index) {
+        byte[] result = new byte[digestLength];
+        long position = record(index);
+        for (int i = 0; i < digestLength; i++) {
+            result[i] = getByte(position + i);
+        }
+        return result;
+    }
+
+    public byte flags(long index) {
+        return getByte(record(index) + digestLength);
+    }
+
+    public boolean isFailed(long index) {
+        return (flags(index) & FAILED) != 0;
+    }
+
+    public byte[] pathBytes(long index) {
+        long position = record(index) + digestLength + 1;
+        long offset = stringsOffset + getLong(position);
+        byte[] bytes = new byte[getInt(position + Long.BYTES)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = getByte(offset + i);
+        }
+        return bytes;
+    }
+
+    public String path(long index) {
+        return new String(pathBytes(index), StandardCharsets.UTF_8);
+    }
+
+    public String hash(long index) {
+        byte[] digest = digest(index);
+        String prefix = (flags(index) & TREE) != 0 ? "tree:" + treeSegment + ":" : "";
+        StringBuilder result = new StringBuilder();
+        int offset = 0;
+        for (int length : lengths) {
+            if (!result.isEmpty()) {
+                result.append(' ');
+            }
+            formatter.formatHex(result.append(prefix), digest, offset, offset + length);
+            offset += length;
+        }
+        return result.toString();
+    }
+
+    int compareDigests(long first, long second) {
+        long a = record(first);
+        long b = record(second);
+        for (int i = 0; i < digestLength; i++) {
+            int result = Integer.compare(getByte(a + i) & 0xff, getByte(b + i) & 0xff);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return 0;
+    }
+
+    private int compareDigest(long index, byte[] prefix) {
+        long position = record(index);
+        for (int i = 0; i < prefix.length; i++) {
+            int result = Integer.compare(getByte(position + i) & 0xff, prefix[i] & 0xff);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return 0;
+    }
+
+    int comparePaths(long first, long second) {
+        long a = record(first) + digestLength + 1;
+        long b = record(second) + digestLength + 1;
+        long aOffset = stringsOffset + getLong(a);
+        long bOffset = stringsOffset + getLong(b);
+        int aLength = getInt(a + Long.BYTES);
+        int bLength = getInt(b + Long.BYTES);
+        for (int i = 0; i < Math.min(aLength, bLength); i++) {
+            int result = Integer.compare(getByte(aOffset + i) & 0xff, getByte(bOffset + i) & 0xff);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return Integer.compare(aLength, bLength);
+    }
+
+    public long byDigest(long rank) {
+        return getInt(digestIndexOffset + 4 * rank);
+    }
+
+    public long byPath(long rank) {
+        return getInt(pathIndexOffset + 4 * rank);
+    }
+
+    // Record numbers in digest order of records whose digest starts with the given bytes
+    public List<Long> findDigest(byte[] prefix) {
+        if (prefix.length > digestLength) {
+            return List.of();
+        }
+        long low = 0;
+        long high = count;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (compareDigest(byDigest(middle), prefix) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        List<Long> result = new ArrayList<>();
+        for (long rank = low; rank < count && compareDigest(byDigest(rank), prefix) == 0; rank++) {
+            result.add(byDigest(rank));
+        }
+        return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
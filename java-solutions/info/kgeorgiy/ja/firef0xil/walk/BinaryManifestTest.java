@@ -0,0 +1,221 @@
+package info.kgeorgiy.ja.firef0xil.walk;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class BinaryManifestTest {
+    private final static String ZERO_HASH = HashAlgorithms.SHA_1.getZeroHash();
+
+    private final Random random = new Random(4598723458972345987L);
+    private final HexFormat formatter = HexFormat.of();
+    private Path root;
+
+    @Before
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("binary-manifest");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private String randomHash(int length) {
+        byte[] digest = new byte[length];
+        random.nextBytes(digest);
+        return formatter.formatHex(digest);
+    }
+
+    private Path write(String name, HashAlgorithms algorithms, long treeSegment, Map<String, String> records)
+            throws IOException {
+        Path file = root.resolve(name);
+        try (BinaryManifestWriter writer = new BinaryManifestWriter(file, algorithms, treeSegment)) {
+            for (Map.Entry<String, String> record : records.entrySet()) {
+                writer.writeHash(record.getKey(), record.getValue());
+            }
+        }
+        return file;
+    }
+
+    private static String run(String... args) {
+        PrintStream out = System.out;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(output, true, StandardCharsets.UTF_8));
+        try {
+            ManifestTool.main(args);
+        } finally {
+            System.setOut(out);
+        }
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    private static String lines(String... lines) {
+        StringBuilder result = new StringBuilder();
+        for (String line : lines) {
+            result.append(line).append(System.lineSeparator());
+        }
+        return result.toString();
+    }
+
+    @Test
+    public void test1_roundTrip() throws IOException {
+        Map<String, String> records = new LinkedHashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            records.put("dir/file" + random.nextInt() + "-" + i, randomHash(20));
+        }
+        records.put("failed", ZERO_HASH);
+        records.put("\u0444\u0430\u0439\u043b", randomHash(20));
+        records.put("", randomHash(20));
+        List<String> paths = new ArrayList<>(records.keySet());
+
+        try (BinaryManifest manifest = BinaryManifest.open(write("manifest", HashAlgorithms.SHA_1, 0, records))) {
+            assertEquals(records.size(), manifest.size());
+            for (int i = 0; i < paths.size(); i++) {
+                assertEquals(paths.get(i), manifest.path(i));
+                assertEquals(records.get(paths.get(i)), manifest.hash(i));
+                assertEquals(paths.get(i).equals("failed"), manifest.isFailed(i));
+                assertEquals(paths.get(i).equals("failed") ? BinaryManifest.FAILED : 0, manifest.flags(i));
+            }
+
+            Comparator<String> byBytes = Comparator.comparing(
+                    path -> path.getBytes(StandardCharsets.UTF_8), Arrays::compareUnsigned);
+            List<String> sorted = paths.stream().sorted(byBytes).toList();
+            for (int rank = 0; rank < sorted.size(); rank++) {
+                assertEquals(sorted.get(rank), manifest.path(manifest.byPath(rank)));
+            }
+            for (int rank = 1; rank < manifest.size(); rank++) {
+                assertTrue(manifest.compareDigests(manifest.byDigest(rank - 1), manifest.byDigest(rank)) <= 0);
+            }
+        }
+    }
+
+    @Test
+    public void test2_findDigest() throws IOException {
+        Map<String, String> records = new LinkedHashMap<>();
+        for (int i = 0; i < 300; i++) {
+            records.put("file" + i, randomHash(20));
+        }
+        records.put("copy", records.get("file7"));
+        try (BinaryManifest manifest = BinaryManifest.open(write("manifest", HashAlgorithms.SHA_1, 0, records))) {
+            String hash = records.get("file7");
+            Set<String> found = new HashSet<>();
+            for (long index : manifest.findDigest(formatter.parseHex(hash))) {
+                found.add(manifest.path(index));
+            }
+            assertEquals(Set.of("file7", "copy"), found);
+
+            byte[] prefix = formatter.parseHex(hash.substring(0, 2));
+            long expected = records.values().stream().filter(value -> value.startsWith(hash.substring(0, 2))).count();
+            assertEquals(expected, manifest.findDigest(prefix).size());
+            assertEquals(records.size(), manifest.findDigest(new byte[0]).size());
+            assertEquals(List.of(), manifest.findDigest(new byte[21]));
+        }
+    }
+
+    @Test
+    public void test3_treeAndColumns() throws IOException, WalkException {
+        HashAlgorithms algorithms = HashAlgorithms.parse("SHA-1,CRC32C");
+        Map<String, String> records = new LinkedHashMap<>();
+        records.put("plain", randomHash(20) + " " + randomHash(4));
+        records.put("tree", "tree:4096:" + randomHash(20) + " tree:4096:" + randomHash(4));
+        records.put("failed", algorithms.getZeroHash());
+        try (BinaryManifest manifest = BinaryManifest.open(write("manifest", algorithms, 4096, records))) {
+            assertEquals(4096, manifest.getTreeSegment());
+            assertEquals(records.get("plain"), manifest.hash(0));
+            assertEquals(records.get("tree"), manifest.hash(1));
+            assertEquals(BinaryManifest.TREE, manifest.flags(1));
+            assertTrue(manifest.isFailed(2));
+            assertEquals(24, manifest.digest(0).length);
+        }
+    }
+
+    @Test
+    public void test4_wrongRecords() throws IOException {
+        try (BinaryManifestWriter writer = new BinaryManifestWriter(root.resolve("manifest"), HashAlgorithms.SHA_1, 0)) {
+            for (String hash : List.of("", "abc", randomHash(19), randomHash(20) + " " + randomHash(20))) {
+                try {
+                    writer.writeHash("file", hash);
+                    fail("Accepted hash '" + hash + "'");
+                } catch (IOException ignored) {
+                }
+            }
+            try {
+                writer.writeSeparator();
+                fail("Accepted separator");
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void test5_notManifest() throws IOException {
+        Path file = Files.writeString(root.resolve("text"), "0000000000000000000000000000000000000000 file\n");
+        BinaryManifest.open(file).close();
+    }
+
+    @Test
+    public void test6_diff() throws IOException {
+        String same = randomHash(20);
+        String before = randomHash(20);
+        String after = randomHash(20);
+        String removed = randomHash(20);
+        String added = randomHash(20);
+        String recovered = randomHash(20);
+        Map<String, String> old = new LinkedHashMap<>();
+        old.put("same", same);
+        old.put("changed", before);
+        old.put("removed", removed);
+        old.put("broken", before);
+        old.put("recovered", ZERO_HASH);
+        old.put("still-failed", ZERO_HASH);
+        Map<String, String> updated = new LinkedHashMap<>();
+        updated.put("still-failed", ZERO_HASH);
+        updated.put("recovered", recovered);
+        updated.put("broken", ZERO_HASH);
+        updated.put("added", added);
+        updated.put("changed", after);
+        updated.put("same", same);
+
+        assertEquals(lines(
+                        "added " + added + " added",
+                        "failed " + ZERO_HASH + " broken",
+                        "changed " + after + " changed",
+                        "changed " + recovered + " recovered",
+                        "removed " + removed + " removed"),
+                run("diff", write("old", HashAlgorithms.SHA_1, 0, old).toString(),
+                        write("new", HashAlgorithms.SHA_1, 0, updated).toString()));
+    }
+
+    @Test
+    public void test7_find() throws IOException {
+        String hash = randomHash(20);
+        Map<String, String> records = new LinkedHashMap<>();
+        records.put("first", hash);
+        records.put("failed", ZERO_HASH);
+        records.put("second", hash);
+        records.put("other", "f" + hash.substring(1).replace('f', 'e'));
+        String manifest = write("manifest", HashAlgorithms.SHA_1, 0, records).toString();
+
+        String expected = lines(hash + " first", hash + " second");
+        assertEquals(expected, run("find", manifest, hash));
+        assertEquals(expected, run("find", manifest, hash.toUpperCase(Locale.ROOT)));
+        assertEquals(expected, run("find", manifest, hash.substring(0, 7)));
+        assertEquals("", run("find", manifest, "00"));
+    }
+}
@@ -0,0 +1,188 @@
+package info.kgeorgiy.ja.firef0xil.walk;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.function.IntBinaryOperator;
+
+// Records are streamed to the output and paths to a temporary string table,
+// which is appended together with both indices on close
+public class BinaryManifestWriter implements ManifestWriter, AutoCloseable {
+    private final static int BUFFER_LENGTH = 64 * 1024;
+
+    private final Path output;
+    private final Path strings;
+    private final FileChannel channel;
+    private final OutputStream stringTable;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_LENGTH);
+    private final List<Integer> lengths;
+    private final int digestLength;
+    private final long treeSegment;
+    private final String zeroHash;
+    private final byte[] digest;
+    private final HexFormat formatter = HexFormat.of();
+    private final WalkStats stats;
+    private long count;
+    private long stringsLength;
+
+    public BinaryManifestWriter(Path output, HashAlgorithms algorithms, long treeSegment) throws IOException {
+        this(output, algorithms, treeSegment, WalkStats.DISABLED);
+    }
+
+    public BinaryManifestWriter(Path output, HashAlgorithms algorithms, long treeSegment, WalkStats stats)
+            throws IOException {
+        this.output = output;
+        this.stats = stats;
+        this.strings = output.resolveSibling(output.getFileName() + ".strings.tmp");
+        this.lengths = algorithms.getLengths();
+        this.digestLength = lengths.stream().mapToInt(Integer::intValue).sum();
+        this.treeSegment = treeSegment;
+        this.zeroHash = algorithms.getZeroHash();
+        this.digest = new byte[digestLength];
+        this.channel = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.READ, StandardOpenOption.TRUNCATE_EXISTING);
+        this.stringTable = new BufferedOutputStream(Files.newOutputStream(strings));
+        channel.position(BinaryManifest.headerLength(lengths.size()));
+    }
+
+    @Override
+    public void writeHash(String file, String hash) throws IOException {
+        if (count == Integer.MAX_VALUE) {
+            throw new IOException("Binary manifest cannot hold more than " + Integer.MAX_VALUE + " records");
+        }
+        long start = stats.start();
+        byte flags = hash.equals(zeroHash) ? BinaryManifest.FAILED : 0;
+        int offset = 0;
+        String[] columns = hash.split(" ");
+        if (columns.length != lengths.size()) {
+            throw new IOException("Unexpected hash format: " + hash);
+        }
+        for (int i = 0; i < columns.length; i++) {
+            String column = columns[i];
+            if (column.startsWith("tree:")) {
+                column = column.substring(column.lastIndexOf(':') + 1);
+                flags |= BinaryManifest.TREE;
+            }
+            if (column.length() != 2 * lengths.get(i)) {
+                throw new IOException("Unexpected hash format: " + hash);
+            }
+            byte[] bytes = formatter.parseHex(column);
+            System.arraycopy(bytes, 0, digest, offset, bytes.length);
+            offset += bytes.length;
+        }
+        byte[] path = file.getBytes(StandardCharsets.UTF_8);
+        if (buffer.remaining() < BinaryManifest.recordLength(digestLength)) {
+            flush();
+        }
+        buffer.put(digest).put(flags).putLong(stringsLength).putInt(path.length);
+        stringTable.write(path);
+        stringsLength += path.length;
+        count++;
+        stats.record(WalkStats.Phase.WRITE, start);
+        stats.written();
+    }
+
+    @Override
+    public void writeSeparator() throws IOException {
+        throw new IOException("Binary manifests cannot contain groups");
+    }
+
+    @Override
+    public String getZeroHash() {
+        return zeroHash;
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void writeHeader(long stringsOffset) throws IOException {
+        long indexOffset = stringsOffset + stringsLength;
+        ByteBuffer header = ByteBuffer.allocate((int) BinaryManifest.headerLength(lengths.size()));
+        header.putInt(BinaryManifest.MAGIC).putInt(BinaryManifest.VERSION).putInt(lengths.size());
+        lengths.forEach(header::putInt);
+        header.putLong(treeSegment)
+                .putLong(count)
+                .putLong(BinaryManifest.headerLength(lengths.size()))
+                .putLong(stringsOffset)
+                .putLong(indexOffset)
+                .putLong(indexOffset + 4 * count);
+        header.flip();
+        channel.write(header, 0);
+    }
+
+    private void writeIndex(int[] order) throws IOException {
+        for (int index : order) {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            buffer.putInt(index);
+        }
+        flush();
+    }
+
+    private static int[] sort(int count, IntBinaryOperator comparator) {
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        int[] temporary = new int[count];
+        for (int width = 1; width < count; width *= 2) {
+            for (int left = 0; left < count - width; left += 2 * width) {
+                int middle = left + width;
+                int right = Math.min(left + 2 * width, count);
+                int i = left;
+                int j = middle;
+                int k = left;
+                while (i < middle && j < right) {
+                    temporary[k++] = comparator.applyAsInt(order[i], order[j]) <= 0 ? order[i++] : order[j++];
+                }
+                while (i < middle) {
+                    temporary[k++] = order[i++];
+                }
+                while (j < right) {
+                    temporary[k++] = order[j++];
+                }
+                System.arraycopy(temporary, left, order, left, right - left);
+            }
+        }
+        return order;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (channel) {
+            stringTable.close();
+            flush();
+            long stringsOffset = channel.position();
+            try (FileChannel table = FileChannel.open(strings, StandardOpenOption.READ)) {
+                long transferred = 0;
+                while (transferred < stringsLength) {
+                    transferred += table.transferTo(transferred, stringsLength - transferred, channel);
+                }
+            }
+            writeHeader(stringsOffset);
+            channel.force(false);
+            int records = (int) count;
+            try (BinaryManifest manifest = BinaryManifest.open(output)) {
+                channel.position(stringsOffset + stringsLength);
+                writeIndex(sort(records, manifest::compareDigests));
+                writeIndex(sort(records, manifest::comparePaths));
+            }
+        } finally {
+            Files.deleteIfExists(strings);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package info.kgeorgiy.ja.firef0xil.walk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.*;
+
+// A directory digest covers its children sorted by name as "f|d \0 name \0 hash \n",
+// directories that could not be listed completely get the zero hash
+public class DirectoryHashWriter implements ManifestWriter {
+    private final ManifestWriter files;
+    private final ManifestWriter directories;
+    private final List<HashFunction> functions;
+    private final HexFormat formatter = HexFormat.of();
+    private final Deque<List<Child>> stack = new ArrayDeque<>();
+
+    private record Child(String name, char type, String hash) {
+    }
+
+    public DirectoryHashWriter(ManifestWriter files, ManifestWriter directories, HashAlgorithms algorithms) {
+        this.files = files;
+        this.directories = directories;
+        this.functions = algorithms.create();
+    }
+
+    private static String name(String path) {
+        Path name = Path.of(path).getFileName();
+        return name == null ? path : name.toString();
+    }
+
+    private void addChild(String path, char type, String hash) {
+        List<Child> children = stack.peek();
+        if (children != null) {
+            children.add(new Child(name(path), type, hash));
+        }
+    }
+
+    @Override
+    public void writeHash(String file, String hash) throws IOException {
+        files.writeHash(file, hash);
+        addChild(file, 'f', hash);
+    }
+
+    // Directories that could not be opened are reported through visitFileFailed
+    @Override
+    public void writeZeroHash(String file) throws IOException {
+        files.writeZeroHash(file);
+        if (isDirectory(file)) {
+            String hash = directories.getZeroHash();
+            directories.writeHash(file, hash);
+            addChild(file, 'd', hash);
+        } else {
+            addChild(file, 'f', files.getZeroHash());
+        }
+    }
+
+    private static boolean isDirectory(String file) {
+        try {
+            return Files.isDirectory(Path.of(file));
+        } catch (InvalidPathException | SecurityException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void writeArchiveEntry(String entry, String hash) throws IOException {
+        files.writeArchiveEntry(entry, hash);
+    }
+
+    @Override
+    public void writeSeparator() throws IOException {
+        files.writeSeparator();
+    }
+
+    @Override
+    public String getZeroHash() {
+        return files.getZeroHash();
+    }
+
+    @Override
+    public void enterDirectory(String dir) throws IOException {
+        files.enterDirectory(dir);
+        stack.push(new ArrayList<>());
+    }
+
+    @Override
+    public void leaveDirectory(String dir, boolean complete) throws IOException {
+        files.leaveDirectory(dir, complete);
+        List<Child> children = stack.pop();
+        String hash = complete ? digest(children) : directories.getZeroHash();
+        directories.writeHash(dir, hash);
+        addChild(dir, 'd', hash);
+    }
+
+    private String digest(List<Child> children) {
+        children.sort(Comparator.comparing(Child::name));
+        for (Child child : children) {
+            String entry = child.type() + "\0" + child.name() + "\0" + child.hash() + "\n";
+            HashImplementation.update(functions, ByteBuffer.wrap(entry.getBytes(StandardCharsets.UTF_8)));
+        }
+        StringBuilder result = new StringBuilder();
+        for (HashFunction function : functions) {
+            if (!result.isEmpty()) {
+                result.append(' ');
+            }
+            formatter.formatHex(result, function.digest());
+        }
+        return result.toString();
+    }
+}
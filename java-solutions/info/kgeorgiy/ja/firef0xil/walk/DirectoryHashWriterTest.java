@@ -0,0 +1,126 @@
+package info.kgeorgiy.ja.firef0xil.walk;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class DirectoryHashWriterTest {
+    private final static String ZERO_HASH = HashAlgorithms.SHA_1.getZeroHash();
+
+    private Path root;
+    private Path file;
+    private Path sub;
+
+    @Before
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("directory-hash-writer");
+        file = Files.write(root.resolve("a"), new byte[]{1, 2, 3});
+        sub = Files.createDirectory(root.resolve("sub"));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private interface Visit {
+        void run(FileVisitor visitor) throws IOException;
+    }
+
+    // Directory lines of the walk as path to hash
+    private static Map<String, String> directories(Visit visit) throws IOException {
+        StringWriter files = new StringWriter();
+        StringWriter directories = new StringWriter();
+        try (BufferedWriter bufferedFiles = new BufferedWriter(files);
+             BufferedWriter bufferedDirectories = new BufferedWriter(directories)) {
+            ManifestWriter writer = new DirectoryHashWriter(
+                    new Writer(bufferedFiles, ZERO_HASH),
+                    new Writer(bufferedDirectories, ZERO_HASH),
+                    HashAlgorithms.SHA_1);
+            try (HashPipeline pipeline = new SequentialHashPipeline(
+                    writer, new HashImplementation(HashAlgorithms.SHA_1, HashStrategy.HEAP))) {
+                visit.run(new FileVisitor(pipeline));
+            }
+        }
+        Map<String, String> result = new HashMap<>();
+        for (String line : directories.toString().split(System.lineSeparator())) {
+            if (!line.isEmpty()) {
+                result.put(line.substring(ZERO_HASH.length() + 1), line.substring(0, ZERO_HASH.length()));
+            }
+        }
+        return result;
+    }
+
+    private static BasicFileAttributes attributes(Path path) throws IOException {
+        return Files.readAttributes(path, BasicFileAttributes.class);
+    }
+
+    private static String digest(String entries) throws NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-1");
+        return HexFormat.of().formatHex(digest.digest(entries.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void test1_unopenedDirectoryIsDirectoryChild() throws IOException, NoSuchAlgorithmException {
+        Map<String, String> hashes = directories(visitor -> {
+            visitor.preVisitDirectory(root, attributes(root));
+            visitor.visitFile(file, attributes(file));
+            visitor.visitFileFailed(sub, new AccessDeniedException(sub.toString()));
+            visitor.postVisitDirectory(root, null);
+        });
+        assertEquals(ZERO_HASH, hashes.get(sub.toString()));
+        String fileHash = new HashImplementation(HashAlgorithms.SHA_1, HashStrategy.HEAP).hash(file.toString());
+        assertEquals(
+                digest("f\0a\0" + fileHash + "\n" + "d\0sub\0" + ZERO_HASH + "\n"),
+                hashes.get(root.toString()));
+    }
+
+    @Test
+    public void test2_failureBeforeAndAfterListingAgree() throws IOException {
+        Map<String, String> unopened = directories(visitor -> {
+            visitor.preVisitDirectory(root, attributes(root));
+            visitor.visitFileFailed(sub, new AccessDeniedException(sub.toString()));
+            visitor.visitFile(file, attributes(file));
+            visitor.postVisitDirectory(root, null);
+        });
+        Map<String, String> incomplete = directories(visitor -> {
+            visitor.preVisitDirectory(root, attributes(root));
+            visitor.preVisitDirectory(sub, attributes(sub));
+            visitor.postVisitDirectory(sub, new IOException("Listing failed"));
+            visitor.visitFile(file, attributes(file));
+            visitor.postVisitDirectory(root, null);
+        });
+        assertEquals(incomplete, unopened);
+    }
+
+    @Test
+    public void test3_failedFileStaysFileChild() throws IOException, NoSuchAlgorithmException {
+        Path missing = root.resolve("missing");
+        Map<String, String> hashes = directories(visitor -> {
+            visitor.preVisitDirectory(root, attributes(root));
+            visitor.visitFileFailed(missing, new AccessDeniedException(missing.toString()));
+            visitor.postVisitDirectory(root, null);
+        });
+        assertFalse(hashes.containsKey(missing.toString()));
+        assertEquals(digest("f\0missing\0" + ZERO_HASH + "\n"), hashes.get(root.toString()));
+    }
+}
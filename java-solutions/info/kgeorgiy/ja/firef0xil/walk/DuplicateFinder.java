@@ -0,0 +1,207 @@
+package info.kgeorgiy.ja.firef0xil.walk;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.zip.CRC32C;
+
+// Narrows candidates by size, then by a checksum of the first and last PROBE_LENGTH bytes,
+// and hashes whole files only for candidates that still collide.
+// Files that could not be read and other than regular files are written as a last group with the zero hash
+public class DuplicateFinder implements HashPipeline {
+    private final static int PROBE_LENGTH = 4 * 1024;
+    private final static int AWAIT_TIME = 10;
+    private final static TimeUnit AWAIT_UNIT = TimeUnit.SECONDS;
+
+    private final ManifestWriter writer;
+    private final ExecutorService workers;
+    private final ThreadLocal<FileHasher> hashProducers;
+    private final Throttle throttle;
+    private final WalkStats stats;
+    private final Map<Long, List<String>> bySize = new LinkedHashMap<>();
+    private final Set<String> seen = new HashSet<>();
+    private final Set<String> failed = new LinkedHashSet<>();
+    private long bytesTotal;
+    private int files;
+    private int groups;
+
+    public DuplicateFinder(
+            ManifestWriter writer,
+            Supplier<FileHasher> hashProducers,
+            int threads,
+            Throttle throttle,
+            WalkStats stats
+    ) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads should be positive number");
+        }
+        this.writer = writer;
+        this.workers = Executors.newFixedThreadPool(threads);
+        this.hashProducers = ThreadLocal.withInitial(hashProducers);
+        this.throttle = throttle;
+        this.stats = stats;
+    }
+
+    @Override
+    public void submit(String file) {
+        if (!seen.add(file)) {
+            return;
+        }
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(Path.of(file), BasicFileAttributes.class);
+            if (attrs.isRegularFile()) {
+                bySize.computeIfAbsent(attrs.size(), size -> new ArrayList<>()).add(file);
+                bytesTotal += attrs.size();
+                files++;
+            } else {
+                failed.add(file);
+            }
+        } catch (IOException | InvalidPathException | SecurityException e) {
+            failed.add(file);
+        }
+    }
+
+    @Override
+    public void submitZero(String file) {
+        if (seen.add(file)) {
+            failed.add(file);
+        }
+    }
+
+    private String probe(String file, long size) {
+        try (FileChannel channel = FileChannel.open(Path.of(file), StandardOpenOption.READ)) {
+            if (throttle != null) {
+                throttle.acquireFile();
+                throttle.acquireBytes(2 * PROBE_LENGTH);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(2 * PROBE_LENGTH);
+            read(channel, buffer, 0, PROBE_LENGTH);
+            read(channel, buffer, size - PROBE_LENGTH, 2 * PROBE_LENGTH);
+            buffer.flip();
+            stats.bytes(buffer.remaining());
+            CRC32C checksum = new CRC32C();
+            checksum.update(buffer);
+            return Long.toHexString(checksum.getValue());
+        } catch (IOException | InvalidPathException | SecurityException e) {
+            return null;
+        }
+    }
+
+    private static void read(FileChannel channel, ByteBuffer buffer, long position, int limit) throws IOException {
+        buffer.limit(limit);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("File was truncated");
+            }
+            position += read;
+        }
+    }
+
+    private String fullHash(String file, String zeroHash) {
+        String hash = hashProducers.get().hash(file);
+        return zeroHash.equals(hash) ? null : hash;
+    }
+
+    // Candidates without a key could not be read and are moved to the failed ones
+    private Map<String, String> keys(List<String> candidates, Function<String, String> key) throws IOException {
+        List<Future<String>> futures = new ArrayList<>(candidates.size());
+        for (String candidate : candidates) {
+            futures.add(workers.submit(() -> key.apply(candidate)));
+        }
+        Map<String, String> result = new HashMap<>();
+        try {
+            for (int i = 0; i < candidates.size(); i++) {
+                String value = futures.get(i).get();
+                if (value != null) {
+                    result.put(candidates.get(i), value);
+                } else {
+                    failed.add(candidates.get(i));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while searching for duplicates");
+        } catch (ExecutionException e) {
+            throw new IOException("Hashing failed", e.getCause());
+        }
+        return result;
+    }
+
+    private static List<List<String>> collisions(List<String> candidates, Map<String, String> keys) {
+        Map<String, List<String>> groups = new LinkedHashMap<>();
+        for (String candidate : candidates) {
+            String key = keys.get(candidate);
+            if (key != null) {
+                groups.computeIfAbsent(key, k -> new ArrayList<>()).add(candidate);
+            }
+        }
+        return groups.values().stream().filter(group -> group.size() > 1).toList();
+    }
+
+    private void writeGroups(long size, List<String> candidates) throws IOException {
+        String zeroHash = writer.getZeroHash();
+        List<List<String>> probed = size > 2 * PROBE_LENGTH
+                ? collisions(candidates, keys(candidates, file -> probe(file, size)))
+                : List.of(candidates);
+        for (List<String> group : probed) {
+            Map<String, String> hashes = keys(group, file -> fullHash(file, zeroHash));
+            for (List<String> duplicates : collisions(group, hashes)) {
+                for (String file : duplicates) {
+                    writer.writeHash(file, hashes.get(file));
+                }
+                writer.writeSeparator();
+                groups++;
+            }
+        }
+    }
+
+    public String report() {
+        return String.format("Duplicates: %d groups among %d files, %d of %d bytes read, %d files failed",
+                groups, files, stats.getBytes(), bytesTotal, failed.size());
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            for (Map.Entry<Long, List<String>> entry : bySize.entrySet()) {
+                if (entry.getValue().size() > 1) {
+                    writeGroups(entry.getKey(), entry.getValue());
+                }
+            }
+            if (!failed.isEmpty()) {
+                for (String file : failed) {
+                    writer.writeZeroHash(file);
+                }
+                writer.writeSeparator();
+            }
+        } finally {
+            bySize.clear();
+            workers.shutdown();
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    if (workers.awaitTermination(AWAIT_TIME, AWAIT_UNIT)) {
+                        break;
+                    }
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+                workers.shutdownNow();
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
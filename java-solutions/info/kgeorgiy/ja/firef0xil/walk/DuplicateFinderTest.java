@@ -0,0 +1,173 @@
+package info.kgeorgiy.ja.firef0xil.walk;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class DuplicateFinderTest {
+    private final static int PROBE_LENGTH = 4 * 1024;
+    private final static String ZERO_HASH = HashAlgorithms.SHA_1.getZeroHash();
+
+    private final Random random = new Random(8237459823745982341L);
+    private Path root;
+
+    @Before
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("duplicate-finder");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private byte[] content(int size) {
+        byte[] content = new byte[size];
+        random.nextBytes(content);
+        return content;
+    }
+
+    private String file(String name, byte[] content) throws IOException {
+        return Files.write(root.resolve(name), content).toString();
+    }
+
+    private static String hash(String file) {
+        return new HashImplementation(HashAlgorithms.SHA_1, HashStrategy.HEAP).hash(file);
+    }
+
+    // Groups as sets of files, each line checked to carry the hash of its file
+    private static List<Set<String>> find(WalkStats stats, List<String> files, List<String> zero) throws IOException {
+        StringWriter output = new StringWriter();
+        try (BufferedWriter buffered = new BufferedWriter(output)) {
+            DuplicateFinder finder = new DuplicateFinder(
+                    new Writer(buffered, ZERO_HASH),
+                    () -> new HashImplementation(HashAlgorithms.SHA_1, HashStrategy.HEAP),
+                    3, null, stats);
+            files.forEach(finder::submit);
+            zero.forEach(finder::submitZero);
+            finder.close();
+        }
+        List<Set<String>> groups = new ArrayList<>();
+        Set<String> group = new LinkedHashSet<>();
+        for (String line : output.toString().split(System.lineSeparator(), -1)) {
+            if (line.isEmpty()) {
+                if (!group.isEmpty()) {
+                    groups.add(group);
+                    group = new LinkedHashSet<>();
+                }
+                continue;
+            }
+            String hash = line.substring(0, ZERO_HASH.length());
+            String file = line.substring(ZERO_HASH.length() + 1);
+            if (!ZERO_HASH.equals(hash)) {
+                assertEquals(hash(file), hash);
+            }
+            group.add(file);
+        }
+        assertTrue(group.isEmpty());
+        return groups;
+    }
+
+    private static List<Set<String>> find(List<String> files) throws IOException {
+        return find(WalkStats.DISABLED, files, List.of());
+    }
+
+    @Test
+    public void test1_groups() throws IOException {
+        byte[] small = content(100);
+        byte[] large = content(5 * PROBE_LENGTH);
+        String a1 = file("a1", small);
+        String a2 = file("a2", small);
+        String b1 = file("b1", large);
+        String b2 = file("b2", large);
+        String b3 = file("b3", large);
+        String unique = file("unique", content(100));
+        assertEquals(
+                Set.of(Set.of(a1, a2), Set.of(b1, b2, b3)),
+                new HashSet<>(find(List.of(a1, b1, unique, a2, b2, b3))));
+    }
+
+    @Test
+    public void test2_noDuplicates() throws IOException {
+        List<String> files = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            files.add(file("file" + i, content(i * PROBE_LENGTH)));
+        }
+        files.add(file("empty", new byte[0]));
+        assertEquals(List.of(), find(files));
+    }
+
+    @Test
+    public void test3_sameProbes() throws IOException {
+        byte[] content = content(3 * PROBE_LENGTH);
+        String first = file("first", content);
+        content[content.length / 2] ^= 1;
+        String second = file("second", content);
+        String third = file("third", content);
+        assertEquals(List.of(Set.of(second, third)), find(List.of(first, second, third)));
+    }
+
+    @Test
+    public void test4_probesOnly() throws IOException {
+        int size = 64 * PROBE_LENGTH;
+        List<String> files = List.of(file("first", content(size)), file("second", content(size)));
+        WalkStats stats = new WalkStats();
+        assertEquals(List.of(), find(stats, files, List.of()));
+        assertEquals(2 * 2 * PROBE_LENGTH, stats.getBytes());
+    }
+
+    @Test
+    public void test5_failed() throws IOException {
+        byte[] content = content(10);
+        String first = file("first", content);
+        String second = file("second", content);
+        String missing = root.resolve("missing").toString();
+        String zero = root.resolve("zero").toString();
+        assertEquals(
+                List.of(Set.of(first, second), Set.of(missing, zero)),
+                find(WalkStats.DISABLED, List.of(first, missing, second, first), List.of(zero)));
+    }
+
+    @Test
+    public void test6_notRegularFiles() throws IOException {
+        String directory = Files.createDirectory(root.resolve("directory")).toString();
+        String file = file("file", content(10));
+        assertEquals(List.of(Set.of(directory)), find(WalkStats.DISABLED, List.of(directory, file), List.of()));
+    }
+
+    @Test
+    public void test7_report() throws IOException {
+        byte[] content = content(3 * PROBE_LENGTH);
+        List<String> files = List.of(
+                file("first", content), file("second", content), file("other", content(3 * PROBE_LENGTH)));
+        WalkStats stats = new WalkStats();
+        StringWriter output = new StringWriter();
+        try (BufferedWriter buffered = new BufferedWriter(output)) {
+            DuplicateFinder finder = new DuplicateFinder(
+                    new Writer(buffered, ZERO_HASH),
+                    () -> new HashImplementation(HashAlgorithms.SHA_1, HashStrategy.HEAP, null, false, stats),
+                    2, null, stats);
+            files.forEach(finder::submit);
+            finder.submitZero(root.resolve("missing").toString());
+            finder.close();
+            assertEquals(String.format("Duplicates: 1 groups among 3 files, %d of %d bytes read, 1 files failed",
+                            3 * 2 * PROBE_LENGTH + 2 * content.length, 3 * content.length),
+                    finder.report());
+        }
+    }
+}
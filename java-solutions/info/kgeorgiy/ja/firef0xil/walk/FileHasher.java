@@ -0,0 +1,6 @@
+package info.kgeorgiy.ja.firef0xil.walk;
+
+@FunctionalInterface
+public interface FileHasher {
+    String hash(String file);
+}
@@ -6,34 +6,51 @@ import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 
-import static info.kgeorgiy.ja.firef0xil.walk.HashImplementation.ZERO_HASH;
-
 public class FileVisitor extends SimpleFileVisitor<Path> {
-    private final Writer writer;
-    private final HashImplementation hashProducer;
+    private final HashPipeline pipeline;
+    private final ArchiveHasher archiveHasher;
+    private final WalkStats stats;
+
+    public FileVisitor(HashPipeline pipeline) {
+        this(pipeline, null, WalkStats.DISABLED);
+    }
 
-    public FileVisitor(Writer writer, HashImplementation hashProducer) {
-        this.writer = writer;
-        this.hashProducer = hashProducer;
+    public FileVisitor(HashPipeline pipeline, ArchiveHasher archiveHasher, WalkStats stats) {
+        this.pipeline = pipeline;
+        this.archiveHasher = archiveHasher;
+        this.stats = stats;
     }
 
     @Override
-    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-        return fileProcess(file.toString(), hashProducer.hash(file.toString()));
+    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+        stats.directory();
+        pipeline.enterDirectory(dir.toString());
+        return FileVisitResult.CONTINUE;
     }
 
     @Override
-    public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
-        return fileProcess(file.toString(), ZERO_HASH);
+    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+        stats.file();
+        String name = file.toString();
+        if (archiveHasher != null && attrs.isRegularFile() && ArchiveHasher.isArchive(name)) {
+            pipeline.submitArchive(name, archiveHasher);
+        } else {
+            pipeline.submit(name);
+        }
+        return FileVisitResult.CONTINUE;
     }
 
     @Override
-    public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+    public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+        stats.file();
+        stats.failure();
+        pipeline.submitZero(file.toString());
         return FileVisitResult.CONTINUE;
     }
 
-    private FileVisitResult fileProcess(String file, String hash) throws IOException {
-        writer.writeHash(file, hash);
+    @Override
+    public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+        pipeline.leaveDirectory(dir.toString(), exc == null);
         return FileVisitResult.CONTINUE;
     }
 }
@@ -0,0 +1,148 @@
+package info.kgeorgiy.ja.firef0xil.walk;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+import java.util.zip.Checksum;
+
+public class HashAlgorithms {
+    public final static HashAlgorithms SHA_1 = new HashAlgorithms(List.of("SHA-1"), List.of(20), "0".repeat(40), true);
+
+    private final List<String> names;
+    private final List<Integer> lengths;
+    private final String zeroHash;
+    private final boolean digest;
+
+    private HashAlgorithms(List<String> names, List<Integer> lengths, String zeroHash, boolean digest) {
+        this.names = names;
+        this.lengths = lengths;
+        this.zeroHash = zeroHash;
+        this.digest = digest;
+    }
+
+    public static HashAlgorithms parse(String algorithms) throws WalkException {
+        List<String> names = new ArrayList<>();
+        List<HashFunction> functions = new ArrayList<>();
+        for (String name : algorithms.split(",", -1)) {
+            if (name.isBlank()) {
+                throw new WalkException("Empty hash algorithm name in '" + algorithms + "'");
+            }
+            names.add(name.strip());
+            functions.add(create(name.strip()));
+        }
+        List<Integer> lengths = functions.stream().map(HashFunction::length).toList();
+        boolean digest = functions.stream().anyMatch(function -> function instanceof DigestFunction);
+        return new HashAlgorithms(List.copyOf(names), lengths, zeroHash(functions), digest);
+    }
+
+    static String zeroHash(List<HashFunction> functions) {
+        return functions.stream()
+                .map(function -> "0".repeat(2 * function.length()))
+                .collect(Collectors.joining(" "));
+    }
+
+    private static HashFunction create(String name) throws WalkException {
+        Supplier<Checksum> checksum = switch (name.toUpperCase(Locale.ROOT)) {
+            case "CRC32C" -> CRC32C::new;
+            case "CRC32" -> CRC32::new;
+            case "ADLER32" -> Adler32::new;
+            default -> null;
+        };
+        if (checksum != null) {
+            return new ChecksumFunction(checksum.get());
+        }
+        try {
+            return new DigestFunction(MessageDigest.getInstance(name));
+        } catch (NoSuchAlgorithmException e) {
+            throw new WalkException("Hash algorithm '" + name + "' is not supported", e);
+        }
+    }
+
+    public List<HashFunction> create() {
+        List<HashFunction> functions = new ArrayList<>(names.size());
+        for (String name : names) {
+            try {
+                functions.add(create(name));
+            } catch (WalkException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return functions;
+    }
+
+    public List<Integer> getLengths() {
+        return lengths;
+    }
+
+    public String getZeroHash() {
+        return zeroHash;
+    }
+
+    // Whether at least one of the algorithms is a message digest rather than a checksum
+    public boolean hasDigest() {
+        return digest;
+    }
+
+    @Override
+    public String toString() {
+        return String.join(",", names);
+    }
+
+    public static HashFunction of(MessageDigest messageDigest) {
+        return new DigestFunction(messageDigest);
+    }
+
+    private record DigestFunction(MessageDigest messageDigest) implements HashFunction {
+        @Override
+        public void update(ByteBuffer buffer) {
+            messageDigest.update(buffer);
+        }
+
+        @Override
+        public byte[] digest() {
+            return messageDigest.digest();
+        }
+
+        @Override
+        public void reset() {
+            messageDigest.reset();
+        }
+
+        @Override
+        public int length() {
+            return messageDigest.getDigestLength();
+        }
+    }
+
+    private record ChecksumFunction(Checksum checksum) implements HashFunction {
+        @Override
+        public void update(ByteBuffer buffer) {
+            checksum.update(buffer);
+        }
+
+        @Override
+        public byte[] digest() {
+            long value = checksum.getValue();
+            checksum.reset();
+            return new byte[]{(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+        }
+
+        @Override
+        public void reset() {
+            checksum.reset();
+        }
+
+        @Override
+        public int length() {
+            return Integer.BYTES;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package info.kgeorgiy.ja.firef0xil.walk;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+
+public class HashBenchmark {
+    private final static long[] DEFAULT_SIZES = {4 * 1024, 256 * 1024, 16 * 1024 * 1024, 256 * 1024 * 1024};
+    private final static HashStrategy[] STRATEGIES = {HashStrategy.HEAP, HashStrategy.DIRECT, HashStrategy.MAPPED};
+    private final static int ROUNDS = 5;
+    private final static long BYTES_PER_ROUND = 512 * 1024 * 1024;
+
+    private static Path createFile(Path directory, long size) throws IOException {
+        Path file = Files.createTempFile(directory, "hash-benchmark-", ".bin");
+        byte[] chunk = new byte[64 * 1024];
+        new Random(size).nextBytes(chunk);
+        try (OutputStream output = Files.newOutputStream(file)) {
+            for (long written = 0; written < size; written += chunk.length) {
+                output.write(chunk, 0, (int) Math.min(chunk.length, size - written));
+            }
+        }
+        return file;
+    }
+
+    private static double throughput(HashImplementation hashProducer, String file, long size) {
+        int repeats = (int) Math.max(1, BYTES_PER_ROUND / Math.max(size, 1));
+        for (int i = 0; i < repeats; i++) {
+            hashProducer.hash(file);
+        }
+        double best = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < repeats; i++) {
+                hashProducer.hash(file);
+            }
+            long elapsed = Math.max(System.nanoTime() - start, 1);
+            best = Math.max(best, (double) size * repeats * 1e9 / elapsed / (1024 * 1024));
+        }
+        return best;
+    }
+
+    // Prints best-of-rounds throughput in MiB/s per strategy, arguments are [directory [size in bytes ...]]
+    public static void main(String[] args) throws IOException, NoSuchAlgorithmException {
+        Path directory = Path.of(args.length > 0 ? args[0] : System.getProperty("java.io.tmpdir"));
+        long[] sizes = DEFAULT_SIZES;
+        if (args.length > 1) {
+            sizes = new long[args.length - 1];
+            for (int i = 1; i < args.length; i++) {
+                sizes[i - 1] = Long.parseLong(args[i]);
+            }
+        }
+        System.out.printf("%12s", "size");
+        for (HashStrategy strategy : STRATEGIES) {
+            System.out.printf("%12s", strategy);
+        }
+        System.out.printf("%12s%n", "adaptive");
+        for (long size : sizes) {
+            Path file = createFile(directory, size);
+            try {
+                System.out.printf("%12d", size);
+                for (HashStrategy strategy : STRATEGIES) {
+                    HashImplementation hashProducer = new HashImplementation(MessageDigest.getInstance("SHA-1"), strategy);
+                    System.out.printf("%12.1f", throughput(hashProducer, file.toString(), size));
+                }
+                System.out.printf("%12s%n", HashStrategy.ADAPTIVE.forSize(size));
+            } finally {
+                Files.delete(file);
+            }
+        }
+    }
+}
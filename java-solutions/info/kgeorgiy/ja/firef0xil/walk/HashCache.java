@@ -0,0 +1,248 @@
+package info.kgeorgiy.ja.firef0xil.walk;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Records appended for the same path supersede earlier ones, the log is rewritten without
+// superseded and vanished entries once they make up more than half of it
+public class HashCache implements AutoCloseable {
+    private final static int MAGIC = 0x57484331;
+    private final static long RACY_INTERVAL = TimeUnit.SECONDS.toNanos(2);
+    private final static int MAX_STRING_LENGTH = 1 << 20;
+    private final static double MAX_STALE_FRACTION = 0.5;
+
+    private final Path file;
+    private final String configuration;
+    private final String zeroHash;
+    private final long startTime = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Set<String> visited = ConcurrentHashMap.newKeySet();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong uncacheable = new AtomicLong();
+    private long records;
+    private int pruned;
+    private DataOutputStream log;
+
+    private record Entry(long size, long modified, String fileKey, String hash) {
+        boolean matches(BasicFileAttributes attrs) {
+            return size == attrs.size()
+                    && modified == attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS)
+                    && Objects.equals(fileKey, HashCache.fileKey(attrs));
+        }
+    }
+
+    private HashCache(Path file, String configuration, String zeroHash) {
+        this.file = file;
+        this.configuration = configuration;
+        this.zeroHash = zeroHash;
+    }
+
+    public static HashCache open(Path file, String configuration, String zeroHash) throws WalkException {
+        HashCache cache = new HashCache(file, configuration, zeroHash);
+        try {
+            if (!cache.load()) {
+                cache.rewrite();
+            }
+            cache.log = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+        } catch (IOException e) {
+            throw new WalkException("Hash cache '" + file + "' is not available", e);
+        }
+        return cache;
+    }
+
+    private static String fileKey(BasicFileAttributes attrs) {
+        Object key = attrs.fileKey();
+        return key == null ? null : key.toString();
+    }
+
+    private static void writeString(DataOutput output, String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+    }
+
+    private static String readString(DataInput input) throws IOException {
+        return readString(input, input.readInt());
+    }
+
+    private static String readString(DataInput input, int length) throws IOException {
+        if (length < 0) {
+            return null;
+        } else if (length > MAX_STRING_LENGTH) {
+            throw new StreamCorruptedException("String of length " + length);
+        }
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeRecord(DataOutput output, String path, Entry entry) throws IOException {
+        writeString(output, path);
+        output.writeLong(entry.size());
+        output.writeLong(entry.modified());
+        writeString(output, entry.fileKey());
+        writeString(output, entry.hash());
+    }
+
+    private boolean load() throws IOException {
+        if (Files.notExists(file)) {
+            return false;
+        }
+        long complete;
+        try (CountingInputStream counter = new CountingInputStream(new BufferedInputStream(Files.newInputStream(file)));
+             DataInputStream input = new DataInputStream(counter)) {
+            try {
+                if (input.readInt() != MAGIC || !configuration.equals(readString(input))) {
+                    return false;
+                }
+            } catch (EOFException | StreamCorruptedException e) {
+                return false;
+            }
+            complete = counter.count;
+            // The log ends with the last complete record, a clean end and a torn record both end in EOFException
+            while (true) {
+                try {
+                    String path = readString(input);
+                    if (path == null) {
+                        throw new StreamCorruptedException("Record without path");
+                    }
+                    entries.put(path, new Entry(input.readLong(), input.readLong(), readString(input), readString(input)));
+                    records++;
+                    complete = counter.count;
+                } catch (EOFException | StreamCorruptedException e) {
+                    break;
+                }
+            }
+        }
+        if (complete < Files.size(file)) {
+            // Torn record of an interrupted run, appending continues after the last complete one
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(complete);
+            }
+        }
+        return true;
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int result = super.read();
+            if (result >= 0) {
+                count++;
+            }
+            return result;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int result = super.read(b, off, len);
+            if (result > 0) {
+                count += result;
+            }
+            return result;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long result = super.skip(n);
+            count += result;
+            return result;
+        }
+    }
+
+    private void rewrite() throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            output.writeInt(MAGIC);
+            writeString(output, configuration);
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                writeRecord(output, entry.getKey(), entry.getValue());
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        records = entries.size();
+    }
+
+    public FileHasher cached(FileHasher hasher) {
+        return path -> {
+            BasicFileAttributes attrs;
+            try {
+                attrs = Files.readAttributes(Path.of(path), BasicFileAttributes.class);
+            } catch (IOException | InvalidPathException | SecurityException e) {
+                return hasher.hash(path);
+            }
+            visited.add(path);
+            Entry cached = entries.get(path);
+            if (cached != null && cached.matches(attrs)) {
+                hits.incrementAndGet();
+                return cached.hash();
+            }
+            misses.incrementAndGet();
+            String hash = hasher.hash(path);
+            long modified = attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+            if (zeroHash.equals(hash) || !attrs.isRegularFile() || modified >= startTime - RACY_INTERVAL) {
+                uncacheable.incrementAndGet();
+                entries.remove(path);
+            } else {
+                store(path, new Entry(attrs.size(), modified, fileKey(attrs), hash));
+            }
+            return hash;
+        };
+    }
+
+    private void store(String path, Entry entry) {
+        entries.put(path, entry);
+        synchronized (this) {
+            try {
+                writeRecord(log, path, entry);
+                records++;
+            } catch (IOException e) {
+                entries.remove(path);
+            }
+        }
+    }
+
+    private void prune() {
+        for (String path : entries.keySet()) {
+            if (!visited.contains(path) && Files.notExists(Path.of(path))) {
+                entries.remove(path);
+                pruned++;
+            }
+        }
+    }
+
+    public String report() {
+        return String.format("Hash cache: %d hits, %d misses (%d not cacheable), %d entries, %d pruned",
+                hits.get(), misses.get(), uncacheable.get(), entries.size(), pruned);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        log.close();
+        prune();
+        if (records - entries.size() > records * MAX_STALE_FRACTION) {
+            rewrite();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package info.kgeorgiy.ja.firef0xil.walk;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class HashCacheTest {
+    private final static String CONFIGURATION = "SHA-1";
+    private final static String ZERO_HASH = HashAlgorithms.SHA_1.getZeroHash();
+
+    private Path root;
+    private Path cacheFile;
+    private final AtomicInteger computed = new AtomicInteger();
+
+    @Before
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("hash-cache");
+        cacheFile = root.resolve("cache");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    // Files modified right before the run are not cached, so test files are moved to the past
+    private Path file(String name, String content) throws IOException {
+        Path file = root.resolve(name);
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(file, FileTime.from(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(10),
+                TimeUnit.MILLISECONDS));
+        return file;
+    }
+
+    private FileHasher hasher(HashCache cache) {
+        FileHasher plain = new HashImplementation(HashAlgorithms.SHA_1, HashStrategy.HEAP);
+        return cache.cached(file -> {
+            computed.incrementAndGet();
+            return plain.hash(file);
+        });
+    }
+
+    private String hash(Path file) {
+        return new HashImplementation(HashAlgorithms.SHA_1, HashStrategy.HEAP).hash(file.toString());
+    }
+
+    @Test
+    public void test1_hitsAfterReopen() throws IOException, WalkException {
+        Path first = file("first", "first");
+        Path second = file("second", "second");
+        try (HashCache cache = HashCache.open(cacheFile, CONFIGURATION, ZERO_HASH)) {
+            FileHasher hasher = hasher(cache);
+            assertEquals(hash(first), hasher.hash(first.toString()));
+            assertEquals(hash(second), hasher.hash(second.toString()));
+            assertEquals("Hash cache: 0 hits, 2 misses (0 not cacheable), 2 entries, 0 pruned", cache.report());
+        }
+        assertEquals(2, computed.get());
+
+        try (HashCache cache = HashCache.open(cacheFile, CONFIGURATION, ZERO_HASH)) {
+            FileHasher hasher = hasher(cache);
+            assertEquals(hash(first), hasher.hash(first.toString()));
+            assertEquals(hash(second), hasher.hash(second.toString()));
+            assertEquals("Hash cache: 2 hits, 0 misses (0 not cacheable), 2 entries, 0 pruned", cache.report());
+        }
+        assertEquals(2, computed.get());
+    }
+
+    @Test
+    public void test2_missAfterModification() throws IOException, WalkException {
+        Path file = file("file", "before");
+        try (HashCache cache = HashCache.open(cacheFile, CONFIGURATION, ZERO_HASH)) {
+            hasher(cache).hash(file.toString());
+        }
+        file("file", "after, longer");
+        try (HashCache cache = HashCache.open(cacheFile, CONFIGURATION, ZERO_HASH)) {
+            assertEquals(hash(file), hasher(cache).hash(file.toString()));
+            assertEquals("Hash cache: 0 hits, 1 misses (0 not cacheable), 1 entries, 0 pruned", cache.report());
+        }
+        assertEquals(2, computed.get());
+    }
+
+    @Test
+    public void test3_otherConfiguration() throws IOException, WalkException {
+        Path file = file("file", "content");
+        try (HashCache cache = HashCache.open(cacheFile, CONFIGURATION, ZERO_HASH)) {
+            hasher(cache).hash(file.toString());
+        }
+        try (HashCache cache = HashCache.open(cacheFile, "tree:1024:" + CONFIGURATION, ZERO_HASH)) {
+            hasher(cache).hash(file.toString());
+            assertEquals("Hash cache: 0 hits, 1 misses (0 not cacheable), 1 entries, 0 pruned", cache.report());
+        }
+    }
+
+    @Test
+    public void test4_notCacheable() throws IOException, WalkException {
+        Path fresh = root.resolve("fresh");
+        Files.writeString(fresh, "fresh");
+        Path missing = root.resolve("missing");
+        try (HashCache cache = HashCache.open(cacheFile, CONFIGURATION, ZERO_HASH)) {
+            FileHasher hasher = hasher(cache);
+            assertEquals(hash(fresh), hasher.hash(fresh.toString()));
+            assertEquals(ZERO_HASH, hasher.hash(missing.toString()));
+            assertEquals("Hash cache: 0 hits, 1 misses (1 not cacheable), 0 entries, 0 pruned", cache.report());
+        }
+        try (HashCache cache = HashCache.open(cacheFile, CONFIGURATION, ZERO_HASH)) {
+            hasher(cache).hash(fresh.toString());
+            assertEquals("Hash cache: 0 hits, 1 misses (1 not cacheable), 0 entries, 0 pruned", cache.report());
+        }
+    }
+
+    @Test
+    public void test5_tornTail() throws IOException, WalkException {
+        Path first = file("first", "first");
+        try (HashCache cache = HashCache.open(cacheFile, CONFIGURATION, ZERO_HASH)) {
+            hasher(cache).hash(first.toString());
+        }
+        long complete = Files.size(cacheFile);
+        Files.write(cacheFile, new byte[]{0, 0, 0, 100, 'p', 'a'}, StandardOpenOption.APPEND);
+
+        Path second = file("second", "second");
+        try (HashCache cache = HashCache.open(cacheFile, CONFIGURATION, ZERO_HASH)) {
+            assertEquals(complete, Files.size(cacheFile));
+            FileHasher hasher = hasher(cache);
+            hasher.hash(first.toString());
+            hasher.hash(second.toString());
+            assertEquals("Hash cache: 1 hits, 1 misses (0 not cacheable), 2 entries, 0 pruned", cache.report());
+        }
+        try (HashCache cache = HashCache.open(cacheFile, CONFIGURATION, ZERO_HASH)) {
+            FileHasher hasher = hasher(cache);
+            assertEquals(hash(first), hasher.hash(first.toString()));
+            assertEquals(hash(second), hasher.hash(second.toString()));
+            assertEquals("Hash cache: 2 hits, 0 misses (0 not cacheable), 2 entries, 0 pruned", cache.report());
+        }
+    }
+
+    @Test
+    public void test6_pruneVanished() throws IOException, WalkException {
+        Path kept = file("kept", "kept");
+        Path removed = file("removed", "removed");
+        try (HashCache cache = HashCache.open(cacheFile, CONFIGURATION, ZERO_HASH)) {
+            FileHasher hasher = hasher(cache);
+            hasher.hash(kept.toString());
+            hasher.hash(removed.toString());
+        }
+        Files.delete(removed);
+        HashCache cache = HashCache.open(cacheFile, CONFIGURATION, ZERO_HASH);
+        hasher(cache).hash(kept.toString());
+        cache.close();
+        assertEquals("Hash cache: 1 hits, 0 misses (0 not cacheable), 1 entries, 1 pruned", cache.report());
+    }
+
+    @Test
+    public void test7_recordWithoutPath() throws IOException, WalkException {
+        Path file = file("file", "content");
+        try (HashCache cache = HashCache.open(cacheFile, CONFIGURATION, ZERO_HASH)) {
+            hasher(cache).hash(file.toString());
+        }
+        long complete = Files.size(cacheFile);
+        byte[] record = new byte[4 + 8 + 8 + 4 + 4];
+        Arrays.fill(record, 0, 4, (byte) 0xff);
+        Files.write(cacheFile, record, StandardOpenOption.APPEND);
+        try (HashCache cache = HashCache.open(cacheFile, CONFIGURATION, ZERO_HASH)) {
+            assertEquals(complete, Files.size(cacheFile));
+            assertEquals(hash(file), hasher(cache).hash(file.toString()));
+            assertEquals("Hash cache: 1 hits, 0 misses (0 not cacheable), 1 entries, 0 pruned", cache.report());
+        }
+    }
+}
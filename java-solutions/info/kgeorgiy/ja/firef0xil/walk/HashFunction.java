@@ -0,0 +1,13 @@
+package info.kgeorgiy.ja.firef0xil.walk;
+
+import java.nio.ByteBuffer;
+
+public interface HashFunction {
+    void update(ByteBuffer buffer);
+
+    byte[] digest();
+
+    void reset();
+
+    int length();
+}
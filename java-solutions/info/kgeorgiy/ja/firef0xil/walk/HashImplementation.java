@@ -1,35 +1,278 @@
 package info.kgeorgiy.ja.firef0xil.walk;
 
-import java.io.BufferedInputStream;
-import java.io.FileInputStream;
+import com.sun.nio.file.ExtendedOpenOption;
+
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.util.HexFormat;
+import java.util.List;
 
-public class HashImplementation {
+public class HashImplementation implements FileHasher {
     public final static String ZERO_HASH = "0".repeat(40);
 
-    private final int bufferLength = 1024;
-    private final byte[] buffer = new byte[bufferLength];
-    private final MessageDigest messageDigest;
+    final static int DIRECT_BUFFER_LENGTH = 1024 * 1024;
+    private final static long MAPPED_REGION_LENGTH = 64 * 1024 * 1024;
+    private final static int DIRECT_IO_ALIGNMENT = 4096;
+
+    private final int bufferLength = 8 * 1024;
+    private final ByteBuffer buffer = ByteBuffer.allocate(bufferLength);
+    private ByteBuffer directBuffer;
+    private ByteBuffer alignedBuffer;
+    private final List<HashFunction> functions;
+    private final String zeroHash;
+    private final HashStrategy strategy;
+    private final Throttle throttle;
+    private final boolean directIo;
+    private final WalkStats stats;
     private final HexFormat formatter = HexFormat.of();
+    private final StringBuilder result = new StringBuilder();
 
     public HashImplementation(MessageDigest messageDigest) {
-        this.messageDigest = messageDigest;
+        this(messageDigest, HashStrategy.ADAPTIVE);
+    }
+
+    public HashImplementation(MessageDigest messageDigest, HashStrategy strategy) {
+        this(List.of(HashAlgorithms.of(messageDigest)), strategy, null, false, WalkStats.DISABLED);
+    }
+
+    public HashImplementation(HashAlgorithms algorithms, HashStrategy strategy) {
+        this(algorithms, strategy, null, false, WalkStats.DISABLED);
+    }
+
+    // Null throttle means unlimited reading
+    public HashImplementation(
+            HashAlgorithms algorithms,
+            HashStrategy strategy,
+            Throttle throttle,
+            boolean directIo,
+            WalkStats stats
+    ) {
+        this(algorithms.create(), strategy, throttle, directIo, stats);
     }
 
+    private HashImplementation(
+            List<HashFunction> functions,
+            HashStrategy strategy,
+            Throttle throttle,
+            boolean directIo,
+            WalkStats stats
+    ) {
+        this.functions = functions;
+        this.strategy = strategy;
+        this.throttle = throttle;
+        this.directIo = directIo;
+        this.stats = stats;
+        this.zeroHash = HashAlgorithms.zeroHash(functions);
+    }
+
+    public String getZeroHash() {
+        return zeroHash;
+    }
+
+    @Override
     public String hash(String file) {
-        try (InputStream input = new BufferedInputStream(new FileInputStream(file))) {
-            int read = input.read(buffer, 0, bufferLength);
-            while (read > -1) {
-                messageDigest.update(buffer, 0, read);
-                read = input.read(buffer, 0, bufferLength);
-            }
-            return formatter.formatHex(messageDigest.digest());
-        } catch (IOException | SecurityException e) {
-            messageDigest.reset();
-            return ZERO_HASH;
+        try {
+            if (throttle != null) {
+                throttle.acquireFile();
+            }
+            Path path = Path.of(file);
+            if (directIo) {
+                long start = stats.start();
+                FileChannel channel = openDirect(path);
+                if (channel != null) {
+                    long opened = stats.start();
+                    boolean reopen = false;
+                    try (channel) {
+                        reopen = !updateDirect(channel, channel.size());
+                        if (!reopen) {
+                            return digest(opened);
+                        }
+                    } finally {
+                        // A file read again without direct I/O counts the open of the fallback only
+                        if (!reopen) {
+                            stats.record(WalkStats.Phase.OPEN, start, opened);
+                        }
+                    }
+                }
+            }
+            return hash(path);
+        } catch (IOException | InvalidPathException | SecurityException e) {
+            functions.forEach(HashFunction::reset);
+            stats.failure();
+            return zeroHash;
+        }
+    }
+
+    private String hash(Path path) throws IOException {
+        long start = stats.start();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            stats.record(WalkStats.Phase.OPEN, start);
+            long read = stats.start();
+            long size = channel.size();
+            switch (strategy.forSize(size)) {
+                case MAPPED -> updateMapped(channel, size);
+                case DIRECT -> updateBuffered(channel, directBuffer());
+                default -> updateBuffered(channel, buffer);
+            }
+            return digest(read);
+        }
+    }
+
+    // Streams a file of any file system, such as an archive entry
+    public String hashStream(Path file) {
+        long start = stats.start();
+        try (ReadableByteChannel channel = Files.newByteChannel(file)) {
+            stats.record(WalkStats.Phase.OPEN, start);
+            if (throttle != null) {
+                throttle.acquireFile();
+            }
+            long read = stats.start();
+            updateBuffered(channel, buffer);
+            return digest(read);
+        } catch (IOException | SecurityException | UnsupportedOperationException e) {
+            functions.forEach(HashFunction::reset);
+            stats.failure();
+            return zeroHash;
+        }
+    }
+
+    private static FileChannel openDirect(Path path) {
+        try {
+            return FileChannel.open(path, StandardOpenOption.READ, ExtendedOpenOption.DIRECT);
+        } catch (IOException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    private String digest(long start) {
+        String hash = digest();
+        stats.record(WalkStats.Phase.READ, start);
+        return hash;
+    }
+
+    private String digest() {
+        if (functions.size() == 1) {
+            return formatter.formatHex(functions.get(0).digest());
+        }
+        result.setLength(0);
+        for (HashFunction function : functions) {
+            if (!result.isEmpty()) {
+                result.append(' ');
+            }
+            formatter.formatHex(result, function.digest());
+        }
+        return result.toString();
+    }
+
+    private void update(ByteBuffer buffer) {
+        update(functions, buffer);
+    }
+
+    static void update(List<HashFunction> functions, ByteBuffer buffer) {
+        if (functions.size() == 1) {
+            functions.get(0).update(buffer);
+            return;
+        }
+        int position = buffer.position();
+        for (HashFunction function : functions) {
+            buffer.position(position);
+            function.update(buffer);
+        }
+    }
+
+    private ByteBuffer directBuffer() {
+        if (directBuffer == null) {
+            directBuffer = ByteBuffer.allocateDirect(DIRECT_BUFFER_LENGTH);
+        }
+        return directBuffer;
+    }
+
+    private ByteBuffer alignedBuffer() {
+        if (alignedBuffer == null) {
+            alignedBuffer = ByteBuffer.allocateDirect(DIRECT_BUFFER_LENGTH + DIRECT_IO_ALIGNMENT)
+                    .alignedSlice(DIRECT_IO_ALIGNMENT)
+                    .slice(0, DIRECT_BUFFER_LENGTH);
+        }
+        return alignedBuffer;
+    }
+
+    private void consume(long bytes) throws IOException {
+        stats.bytes(bytes);
+        if (throttle != null) {
+            throttle.acquireBytes(bytes);
+        }
+    }
+
+    private void updateBuffered(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        int read;
+        while ((read = channel.read(buffer)) > -1) {
+            consume(read);
+            buffer.flip();
+            update(buffer);
+            buffer.clear();
+        }
+    }
+
+    // Direct reads must start at aligned offsets, so reading stops at the known size
+    // instead of issuing one more unaligned read after the short last block.
+    // Returns false if the first read fails, as when the file store rejects the alignment,
+    // nothing is consumed then and the file is read again without direct I/O.
+    private boolean updateDirect(FileChannel channel, long size) throws IOException {
+        ByteBuffer buffer = alignedBuffer();
+        for (long position = 0; position < size; ) {
+            buffer.clear();
+            int read;
+            try {
+                read = channel.read(buffer);
+            } catch (IOException e) {
+                if (position == 0) {
+                    return false;
+                }
+                throw e;
+            }
+            if (read < 0) {
+                throw new IOException("File was truncated while hashing");
+            }
+            position += read;
+            consume(read);
+            buffer.flip();
+            update(buffer);
+        }
+        return true;
+    }
+
+    // Access to a region of a file truncated after mapping raises InternalError instead of an IOException
+    private void updateMapped(FileChannel channel, long size) throws IOException {
+        try {
+            updateRegions(channel, size);
+        } catch (InternalError e) {
+            throw new IOException("File was truncated while hashing", e);
+        }
+    }
+
+    private void updateRegions(FileChannel channel, long size) throws IOException {
+        for (long position = 0; position < size; position += MAPPED_REGION_LENGTH) {
+            long length = Math.min(MAPPED_REGION_LENGTH, size - position);
+            MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            if (throttle == null) {
+                update(region);
+                stats.bytes(length);
+            } else {
+                for (int offset = 0; offset < length; offset += DIRECT_BUFFER_LENGTH) {
+                    int chunk = (int) Math.min(DIRECT_BUFFER_LENGTH, length - offset);
+                    consume(chunk);
+                    update(region.slice(offset, chunk));
+                }
+            }
         }
     }
 }
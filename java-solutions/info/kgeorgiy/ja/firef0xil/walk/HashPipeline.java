@@ -0,0 +1,22 @@
+package info.kgeorgiy.ja.firef0xil.walk;
+
+import java.io.IOException;
+
+public interface HashPipeline extends AutoCloseable {
+    void submit(String file) throws IOException;
+
+    void submitZero(String file) throws IOException;
+
+    default void submitArchive(String archive, ArchiveHasher archiveHasher) throws IOException {
+        submit(archive);
+    }
+
+    default void enterDirectory(String dir) throws IOException {
+    }
+
+    default void leaveDirectory(String dir, boolean complete) throws IOException {
+    }
+
+    @Override
+    void close() throws IOException;
+}
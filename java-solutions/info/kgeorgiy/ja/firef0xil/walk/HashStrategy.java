@@ -0,0 +1,34 @@
+package info.kgeorgiy.ja.firef0xil.walk;
+
+import java.util.Locale;
+
+public enum HashStrategy {
+    HEAP,
+    DIRECT,
+    MAPPED,
+    ADAPTIVE;
+
+    // Files below one heap buffer are read in a single call, where heap and direct buffers perform the same
+    public final static long DIRECT_THRESHOLD = 8 * 1024;
+    public final static long MAPPED_THRESHOLD = 64 * 1024 * 1024;
+
+    public HashStrategy forSize(long size) {
+        if (this != ADAPTIVE) {
+            return this;
+        } else if (size >= MAPPED_THRESHOLD) {
+            return MAPPED;
+        } else if (size >= DIRECT_THRESHOLD) {
+            return DIRECT;
+        } else {
+            return HEAP;
+        }
+    }
+
+    public static HashStrategy of(String name) throws WalkException {
+        try {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new WalkException("Unknown hash strategy '" + name + "'", e);
+        }
+    }
+}
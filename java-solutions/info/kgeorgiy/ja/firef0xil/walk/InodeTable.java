@@ -0,0 +1,55 @@
+package info.kgeorgiy.ja.firef0xil.walk;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class InodeTable {
+    private final Map<Key, CompletableFuture<String>> hashes = new ConcurrentHashMap<>();
+    private final AtomicLong reused = new AtomicLong();
+    private final AtomicLong hashed = new AtomicLong();
+
+    private record Key(Object fileKey, long size, FileTime modified) {
+    }
+
+    public FileHasher shared(FileHasher hasher) {
+        return file -> {
+            Key key;
+            try {
+                BasicFileAttributes attrs = Files.readAttributes(Path.of(file), BasicFileAttributes.class);
+                if (attrs.fileKey() == null) {
+                    return hasher.hash(file);
+                }
+                key = new Key(attrs.fileKey(), attrs.size(), attrs.lastModifiedTime());
+            } catch (IOException | InvalidPathException | SecurityException e) {
+                return hasher.hash(file);
+            }
+            CompletableFuture<String> hash = new CompletableFuture<>();
+            CompletableFuture<String> existing = hashes.putIfAbsent(key, hash);
+            if (existing != null) {
+                reused.incrementAndGet();
+                return existing.join();
+            }
+            hashed.incrementAndGet();
+            try {
+                hash.complete(hasher.hash(file));
+            } catch (RuntimeException e) {
+                hashes.remove(key, hash);
+                hash.completeExceptionally(e);
+                throw e;
+            }
+            return hash.join();
+        };
+    }
+
+    public String report() {
+        return String.format("Inode table: %d files hashed, %d reused", hashed.get(), reused.get());
+    }
+}
@@ -0,0 +1,78 @@
+package info.kgeorgiy.ja.firef0xil.walk;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Locale;
+
+// diff prints added, removed, changed and failed records by merging both path indices,
+// find prints records with the digest prefix, files that could not be hashed never match
+public class ManifestTool {
+    private final static String USAGE = "Usage: diff <old manifest> <new manifest> | find <manifest> <hex digest prefix>";
+
+    public static void main(String[] args) {
+        if (args == null || args.length != 3 || Arrays.asList(args).contains(null)) {
+            System.err.println(USAGE);
+            return;
+        }
+        try (BufferedWriter output = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))) {
+            switch (args[0]) {
+                case "diff" -> diff(Path.of(args[1]), Path.of(args[2]), new Writer(output));
+                case "find" -> find(Path.of(args[1]), args[2], new Writer(output));
+                default -> System.err.println(USAGE);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
+    private static void diff(Path oldPath, Path newPath, Writer writer) throws IOException {
+        try (BinaryManifest before = BinaryManifest.open(oldPath); BinaryManifest after = BinaryManifest.open(newPath)) {
+            long i = 0;
+            long j = 0;
+            while (i < before.size() || j < after.size()) {
+                long oldIndex = i < before.size() ? before.byPath(i) : -1;
+                long newIndex = j < after.size() ? after.byPath(j) : -1;
+                int compare = oldIndex < 0 ? 1 : newIndex < 0 ? -1
+                        : Arrays.compareUnsigned(before.pathBytes(oldIndex), after.pathBytes(newIndex));
+                if (compare < 0) {
+                    writer.writeDelta("removed", before.path(oldIndex), before.hash(oldIndex));
+                    i++;
+                } else if (compare > 0) {
+                    writer.writeDelta("added", after.path(newIndex), after.hash(newIndex));
+                    j++;
+                } else if (after.isFailed(newIndex)) {
+                    if (!before.isFailed(oldIndex)) {
+                        writer.writeDelta("failed", after.path(newIndex), after.hash(newIndex));
+                    }
+                    i++;
+                    j++;
+                } else {
+                    String hash = after.hash(newIndex);
+                    if (before.isFailed(oldIndex) || !before.hash(oldIndex).equals(hash)) {
+                        writer.writeDelta("changed", after.path(newIndex), hash);
+                    }
+                    i++;
+                    j++;
+                }
+            }
+        }
+    }
+
+    private static void find(Path path, String digest, Writer writer) throws IOException {
+        HexFormat formatter = HexFormat.of();
+        String hex = digest.toLowerCase(Locale.ROOT);
+        byte[] prefix = formatter.parseHex(hex, 0, hex.length() - hex.length() % 2);
+        try (BinaryManifest manifest = BinaryManifest.open(path)) {
+            for (long index : manifest.findDigest(prefix)) {
+                if (!manifest.isFailed(index) && formatter.formatHex(manifest.digest(index)).startsWith(hex)) {
+                    writer.writeHash(manifest.path(index), manifest.hash(index));
+                }
+            }
+        }
+    }
+}
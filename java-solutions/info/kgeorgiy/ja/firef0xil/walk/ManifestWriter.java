@@ -0,0 +1,25 @@
+package info.kgeorgiy.ja.firef0xil.walk;
+
+import java.io.IOException;
+
+public interface ManifestWriter {
+    void writeHash(String file, String hash) throws IOException;
+
+    void writeSeparator() throws IOException;
+
+    String getZeroHash();
+
+    default void writeZeroHash(String file) throws IOException {
+        writeHash(file, getZeroHash());
+    }
+
+    default void writeArchiveEntry(String entry, String hash) throws IOException {
+        writeHash(entry, hash);
+    }
+
+    default void enterDirectory(String dir) throws IOException {
+    }
+
+    default void leaveDirectory(String dir, boolean complete) throws IOException {
+    }
+}
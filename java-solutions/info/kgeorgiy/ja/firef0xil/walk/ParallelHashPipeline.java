@@ -0,0 +1,126 @@
+package info.kgeorgiy.ja.firef0xil.walk;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+public class ParallelHashPipeline implements HashPipeline {
+    private final static int AWAIT_TIME = 10;
+    private final static TimeUnit AWAIT_UNIT = TimeUnit.SECONDS;
+
+    private final ManifestWriter writer;
+    private final ExecutorService workers;
+    private final ThreadLocal<FileHasher> hashProducers;
+    private final Queue<Pending> window = new ArrayDeque<>();
+    private final int windowSize;
+
+    public ParallelHashPipeline(ManifestWriter writer, Supplier<FileHasher> hashProducers, int threads, int windowSize) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads should be positive number");
+        }
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("Window size should be positive number");
+        }
+        this.writer = writer;
+        this.workers = Executors.newFixedThreadPool(threads);
+        this.hashProducers = ThreadLocal.withInitial(hashProducers);
+        this.windowSize = windowSize;
+    }
+
+    private enum Kind {
+        FILE, ZERO, ARCHIVE, ENTER, LEAVE, LEAVE_INCOMPLETE
+    }
+
+    private record Pending(Kind kind, String file, Future<String> hash, Future<List<ArchiveHasher.Entry>> entries) {
+    }
+
+    @Override
+    public void submit(String file) throws IOException {
+        enqueue(new Pending(Kind.FILE, file, workers.submit(() -> hashProducers.get().hash(file)), null));
+    }
+
+    @Override
+    public void submitZero(String file) throws IOException {
+        enqueue(new Pending(Kind.ZERO, file, null, null));
+    }
+
+    @Override
+    public void submitArchive(String archive, ArchiveHasher archiveHasher) throws IOException {
+        submit(archive);
+        enqueue(new Pending(Kind.ARCHIVE, archive, null, workers.submit(() -> archiveHasher.hash(archive))));
+    }
+
+    @Override
+    public void enterDirectory(String dir) throws IOException {
+        enqueue(new Pending(Kind.ENTER, dir, null, null));
+    }
+
+    @Override
+    public void leaveDirectory(String dir, boolean complete) throws IOException {
+        enqueue(new Pending(complete ? Kind.LEAVE : Kind.LEAVE_INCOMPLETE, dir, null, null));
+    }
+
+    private void enqueue(Pending pending) throws IOException {
+        while (window.size() >= windowSize) {
+            writeHead();
+        }
+        window.add(pending);
+    }
+
+    private void writeHead() throws IOException {
+        Pending head = window.poll();
+        switch (head.kind()) {
+            case ZERO -> writer.writeZeroHash(head.file());
+            case ENTER -> writer.enterDirectory(head.file());
+            case LEAVE -> writer.leaveDirectory(head.file(), true);
+            case LEAVE_INCOMPLETE -> writer.leaveDirectory(head.file(), false);
+            case FILE -> writer.writeHash(head.file(), await(head.hash(), head.file()));
+            case ARCHIVE -> {
+                for (ArchiveHasher.Entry entry : await(head.entries(), head.file())) {
+                    writer.writeArchiveEntry(entry.path(), entry.hash());
+                }
+            }
+        }
+    }
+
+    private static <T> T await(Future<T> future, String file) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for hash of '" + file + "'");
+        } catch (ExecutionException e) {
+            throw new IOException("Hashing of '" + file + "' failed", e.getCause());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            while (!window.isEmpty()) {
+                writeHead();
+            }
+        } finally {
+            window.clear();
+            workers.shutdown();
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    if (workers.awaitTermination(AWAIT_TIME, AWAIT_UNIT)) {
+                        break;
+                    }
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+                workers.shutdownNow();
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package info.kgeorgiy.ja.firef0xil.walk;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class ParallelTreeWalker implements TreeWalker {
+    private final static int AWAIT_TIME = 10;
+    private final static TimeUnit AWAIT_UNIT = TimeUnit.SECONDS;
+    private final static int LOOKAHEAD_PER_LISTER = 256;
+
+    private final ForkJoinPool listers;
+    // Directories listed ahead of the visitor, others are listed when the visitor reaches them
+    private final Semaphore lookahead;
+    private final boolean followLinks;
+
+    public ParallelTreeWalker(int threads, boolean followLinks) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads should be positive number");
+        }
+        this.listers = new ForkJoinPool(threads);
+        this.lookahead = new Semaphore(threads * LOOKAHEAD_PER_LISTER);
+        this.followLinks = followLinks;
+    }
+
+    private record Ancestor(Path dir, Object fileKey, Ancestor parent) {
+    }
+
+    private sealed interface Node permits FileNode, FailedNode, DirectoryNode {
+    }
+
+    private record FileNode(Path file, BasicFileAttributes attrs) implements Node {
+    }
+
+    private record FailedNode(Path file, IOException exc) implements Node {
+    }
+
+    private record DirectoryNode(Path dir, BasicFileAttributes attrs, ListTask children) implements Node {
+    }
+
+    private record Listing(List<Node> children, boolean opened, IOException exc) {
+    }
+
+    private class ListTask extends RecursiveTask<Listing> {
+        private final static long serialVersionUID = 1L;
+
+        private final transient Path dir;
+        private final transient Ancestor ancestors;
+        private final AtomicBoolean started = new AtomicBoolean();
+        private volatile boolean forked;
+        private volatile boolean discarded;
+
+        ListTask(Path dir, Ancestor ancestors) {
+            this.dir = dir;
+            this.ancestors = ancestors;
+        }
+
+        Listing listing() {
+            if (!forked) {
+                return listers.invoke(this);
+            }
+            try {
+                return join();
+            } finally {
+                lookahead.release();
+            }
+        }
+
+        @Override
+        protected Listing compute() {
+            List<Node> children = new ArrayList<>();
+            if (!started.compareAndSet(false, true)) {
+                return new Listing(children, false, null);
+            }
+            DirectoryStream<Path> stream;
+            try {
+                stream = Files.newDirectoryStream(dir);
+            } catch (IOException e) {
+                return new Listing(children, false, e);
+            } catch (SecurityException e) {
+                return new Listing(children, false, new AccessDeniedException(dir.toString()));
+            }
+            try (stream) {
+                for (Path child : stream) {
+                    if (discarded) {
+                        break;
+                    }
+                    children.add(node(child, ancestors));
+                }
+            } catch (IOException e) {
+                return new Listing(children, true, e);
+            } catch (DirectoryIteratorException e) {
+                return new Listing(children, true, e.getCause());
+            }
+            return new Listing(children, true, null);
+        }
+    }
+
+    private BasicFileAttributes readAttributes(Path file) throws IOException {
+        if (followLinks) {
+            try {
+                return Files.readAttributes(file, BasicFileAttributes.class);
+            } catch (IOException e) {
+                // broken link is reported as the link itself, like Files.walkFileTree does
+            }
+        }
+        return Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+    }
+
+    private boolean isLoop(Path dir, Object fileKey, Ancestor ancestors) {
+        for (Ancestor ancestor = ancestors; ancestor != null; ancestor = ancestor.parent()) {
+            try {
+                if (fileKey != null && ancestor.fileKey() != null
+                        ? fileKey.equals(ancestor.fileKey())
+                        : Files.isSameFile(dir, ancestor.dir())) {
+                    return true;
+                }
+            } catch (IOException | SecurityException ignored) {
+            }
+        }
+        return false;
+    }
+
+    private Node node(Path file, Ancestor ancestors) {
+        BasicFileAttributes attrs;
+        try {
+            attrs = readAttributes(file);
+        } catch (IOException e) {
+            return new FailedNode(file, e);
+        } catch (SecurityException e) {
+            return new FailedNode(file, new AccessDeniedException(file.toString()));
+        }
+        if (attrs.isDirectory()) {
+            if (followLinks && isLoop(file, attrs.fileKey(), ancestors)) {
+                return new FailedNode(file, new FileSystemLoopException(file.toString()));
+            }
+            ListTask children = new ListTask(file, followLinks ? new Ancestor(file, attrs.fileKey(), ancestors) : null);
+            if (lookahead.tryAcquire()) {
+                children.forked = true;
+                children.fork();
+            }
+            return new DirectoryNode(file, attrs, children);
+        }
+        return new FileNode(file, attrs);
+    }
+
+    @Override
+    public void walk(Path start, java.nio.file.FileVisitor<? super Path> visitor) throws IOException {
+        visit(listers.submit(() -> node(start, null)).join(), visitor);
+    }
+
+    private FileVisitResult visit(Node node, java.nio.file.FileVisitor<? super Path> visitor) throws IOException {
+        if (node instanceof FileNode file) {
+            return visitor.visitFile(file.file(), file.attrs());
+        } else if (node instanceof FailedNode failed) {
+            return visitor.visitFileFailed(failed.file(), failed.exc());
+        }
+        DirectoryNode directory = (DirectoryNode) node;
+        Listing listing = directory.children().listing();
+        List<Node> children = listing.children();
+        int next = 0;
+        try {
+            if (!listing.opened()) {
+                return visitor.visitFileFailed(directory.dir(), listing.exc());
+            }
+            FileVisitResult result = visitor.preVisitDirectory(directory.dir(), directory.attrs());
+            if (result != FileVisitResult.CONTINUE) {
+                return result == FileVisitResult.SKIP_SUBTREE ? FileVisitResult.CONTINUE : result;
+            }
+            for (; next < children.size(); next++) {
+                // Visited subtrees are released, so only the path to the current directory stays in memory
+                result = visit(children.set(next, null), visitor);
+                if (result == FileVisitResult.TERMINATE) {
+                    return result;
+                } else if (result == FileVisitResult.SKIP_SIBLINGS) {
+                    next++;
+                    break;
+                }
+            }
+            return visitor.postVisitDirectory(directory.dir(), listing.exc());
+        } finally {
+            for (int i = next; i < children.size(); i++) {
+                discard(children.get(i));
+            }
+        }
+    }
+
+    // Stops listing of a subtree the visitor will not enter and returns its lookahead
+    private void discard(Node node) {
+        if (node instanceof DirectoryNode directory && directory.children().forked) {
+            ListTask task = directory.children();
+            if (task.started.compareAndSet(false, true)) {
+                task.cancel(false);
+                lookahead.release();
+                return;
+            }
+            task.discarded = true;
+            Listing listing = task.listing();
+            for (Node child : listing.children()) {
+                discard(child);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        listers.shutdownNow();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (listers.awaitTermination(AWAIT_TIME, AWAIT_UNIT)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package info.kgeorgiy.ja.firef0xil.walk;
+
+import java.io.IOException;
+
+public class SequentialHashPipeline implements HashPipeline {
+    private final ManifestWriter writer;
+    private final FileHasher hashProducer;
+
+    public SequentialHashPipeline(ManifestWriter writer, FileHasher hashProducer) {
+        this.writer = writer;
+        this.hashProducer = hashProducer;
+    }
+
+    @Override
+    public void submit(String file) throws IOException {
+        writer.writeHash(file, hashProducer.hash(file));
+    }
+
+    @Override
+    public void submitZero(String file) throws IOException {
+        writer.writeZeroHash(file);
+    }
+
+    @Override
+    public void submitArchive(String archive, ArchiveHasher archiveHasher) throws IOException {
+        submit(archive);
+        for (ArchiveHasher.Entry entry : archiveHasher.hash(archive)) {
+            writer.writeArchiveEntry(entry.path(), entry.hash());
+        }
+    }
+
+    @Override
+    public void enterDirectory(String dir) throws IOException {
+        writer.enterDirectory(dir);
+    }
+
+    @Override
+    public void leaveDirectory(String dir, boolean complete) throws IOException {
+        writer.leaveDirectory(dir, complete);
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,60 @@
+package info.kgeorgiy.ja.firef0xil.walk;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+// Buckets hold at most one second worth of tokens and may go into debt,
+// so a large read is admitted at once and paid back by the following ones
+public class Throttle {
+    private final static long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final Bucket bytes;
+    private final Bucket files;
+
+    public Throttle(long bytesPerSecond, long filesPerSecond) {
+        this.bytes = bytesPerSecond > 0 ? new Bucket(bytesPerSecond) : null;
+        this.files = filesPerSecond > 0 ? new Bucket(filesPerSecond) : null;
+    }
+
+    public void acquireFile() throws InterruptedIOException {
+        if (files != null) {
+            files.acquire(1);
+        }
+    }
+
+    public void acquireBytes(long count) throws InterruptedIOException {
+        if (bytes != null) {
+            bytes.acquire(count);
+        }
+    }
+
+    private static class Bucket {
+        private final long rate;
+        private double available;
+        private long updated = System.nanoTime();
+
+        Bucket(long rate) {
+            this.rate = rate;
+            this.available = rate;
+        }
+
+        void acquire(long count) throws InterruptedIOException {
+            long delay;
+            synchronized (this) {
+                long now = System.nanoTime();
+                available = Math.min(rate, available + (double) (now - updated) * rate / SECOND);
+                updated = now;
+                available -= count;
+                delay = available < 0 ? (long) (-available * SECOND / rate) : 0;
+            }
+            if (delay > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while throttled");
+                }
+            }
+        }
+    }
+}
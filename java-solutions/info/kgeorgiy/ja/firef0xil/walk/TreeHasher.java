@@ -0,0 +1,208 @@
+package info.kgeorgiy.ja.firef0xil.walk;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Leaves are H(0x00 || segment), inner nodes are H(0x01 || left || right) with an odd last node promoted as is,
+// files of at most one segment keep their plain digest
+public class TreeHasher implements AutoCloseable {
+    private final static int SEGMENTS_PER_THREAD = 2;
+    private final static int AWAIT_TIME = 10;
+    private final static TimeUnit AWAIT_UNIT = TimeUnit.SECONDS;
+    private final static byte[] LEAF = {0};
+    private final static byte[] NODE = {1};
+
+    private final HashAlgorithms algorithms;
+    private final long segmentLength;
+    private final String prefix;
+    private final ExecutorService workers;
+    private final int window;
+    private final Throttle throttle;
+    private final WalkStats stats;
+    private final ThreadLocal<List<HashFunction>> functions;
+    private final ThreadLocal<ByteBuffer> buffers =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(HashImplementation.DIRECT_BUFFER_LENGTH));
+    private final HexFormat formatter = HexFormat.of();
+
+    public TreeHasher(HashAlgorithms algorithms, long segmentLength, int threads) {
+        this(algorithms, segmentLength, threads, null, WalkStats.DISABLED);
+    }
+
+    public TreeHasher(HashAlgorithms algorithms, long segmentLength, int threads, Throttle throttle, WalkStats stats) {
+        if (segmentLength < 1) {
+            throw new IllegalArgumentException("Segment length should be positive number");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads should be positive number");
+        }
+        this.algorithms = algorithms;
+        this.segmentLength = segmentLength;
+        this.prefix = "tree:" + segmentLength + ":";
+        this.workers = Executors.newFixedThreadPool(threads);
+        this.window = SEGMENTS_PER_THREAD * threads;
+        this.throttle = throttle;
+        this.stats = stats;
+        this.functions = ThreadLocal.withInitial(algorithms::create);
+    }
+
+    public String getConfiguration() {
+        return prefix + algorithms;
+    }
+
+    public FileHasher tree(FileHasher plain) {
+        return file -> {
+            try {
+                Path path = Path.of(file);
+                if (Files.size(path) <= segmentLength) {
+                    return plain.hash(file);
+                }
+                return hash(path);
+            } catch (IOException | InvalidPathException | SecurityException e) {
+                stats.failure();
+                return algorithms.getZeroHash();
+            }
+        };
+    }
+
+    private String hash(Path path) throws IOException {
+        long start = stats.start();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            stats.record(WalkStats.Phase.OPEN, start);
+            if (throttle != null) {
+                throttle.acquireFile();
+            }
+            long read = stats.start();
+            String hash = hash(channel, size);
+            stats.record(WalkStats.Phase.READ, read);
+            return hash;
+        }
+    }
+
+    // At most window segments of a file are queued or being read at once.
+    // Segments are cancelled without interruption, since interrupting a read closes the shared channel
+    private String hash(FileChannel channel, long size) throws IOException {
+        List<List<byte[]>> level = new ArrayList<>();
+        Deque<Future<List<byte[]>>> leaves = new ArrayDeque<>(window);
+        try {
+            for (long position = 0; position < size; position += segmentLength) {
+                if (leaves.size() == window) {
+                    level.add(leaves.poll().get());
+                }
+                long from = position;
+                long length = Math.min(segmentLength, size - position);
+                leaves.add(workers.submit(() -> leaf(channel, from, length)));
+            }
+            while (!leaves.isEmpty()) {
+                level.add(leaves.poll().get());
+            }
+        } catch (InterruptedException e) {
+            leaves.forEach(leaf -> leaf.cancel(false));
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while hashing segments");
+        } catch (ExecutionException e) {
+            leaves.forEach(leaf -> leaf.cancel(false));
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            throw new IOException("Segment hashing failed", e.getCause());
+        }
+        return format(root(level));
+    }
+
+    private List<byte[]> leaf(FileChannel channel, long from, long length) throws IOException {
+        List<HashFunction> leafFunctions = functions.get();
+        ByteBuffer buffer = buffers.get();
+        try {
+            HashImplementation.update(leafFunctions, ByteBuffer.wrap(LEAF));
+            long position = from;
+            long end = from + length;
+            while (position < end) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), end - position));
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    throw new IOException("File was truncated while hashing");
+                }
+                position += read;
+                stats.bytes(read);
+                if (throttle != null) {
+                    throttle.acquireBytes(read);
+                }
+                buffer.flip();
+                HashImplementation.update(leafFunctions, buffer);
+            }
+            return digests(leafFunctions);
+        } catch (IOException | RuntimeException e) {
+            leafFunctions.forEach(HashFunction::reset);
+            throw e;
+        }
+    }
+
+    private List<byte[]> root(List<List<byte[]>> level) {
+        List<HashFunction> nodeFunctions = functions.get();
+        while (level.size() > 1) {
+            List<List<byte[]>> next = new ArrayList<>((level.size() + 1) / 2);
+            for (int i = 0; i + 1 < level.size(); i += 2) {
+                for (int j = 0; j < nodeFunctions.size(); j++) {
+                    HashFunction function = nodeFunctions.get(j);
+                    function.update(ByteBuffer.wrap(NODE));
+                    function.update(ByteBuffer.wrap(level.get(i).get(j)));
+                    function.update(ByteBuffer.wrap(level.get(i + 1).get(j)));
+                }
+                next.add(digests(nodeFunctions));
+            }
+            if (level.size() % 2 == 1) {
+                next.add(level.get(level.size() - 1));
+            }
+            level = next;
+        }
+        return level.get(0);
+    }
+
+    private static List<byte[]> digests(List<HashFunction> functions) {
+        List<byte[]> result = new ArrayList<>(functions.size());
+        for (HashFunction function : functions) {
+            result.add(function.digest());
+        }
+        return result;
+    }
+
+    private String format(List<byte[]> digests) {
+        StringBuilder result = new StringBuilder();
+        for (byte[] digest : digests) {
+            if (!result.isEmpty()) {
+                result.append(' ');
+            }
+            formatter.formatHex(result.append(prefix), digest);
+        }
+        return result.toString();
+    }
+
+    @Override
+    public void close() {
+        workers.shutdown();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (workers.awaitTermination(AWAIT_TIME, AWAIT_UNIT)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+            workers.shutdownNow();
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package info.kgeorgiy.ja.firef0xil.walk;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class TreeHasherTest {
+    private final static int SEGMENT = 1024;
+
+    private final Random random = new Random(2350982345098234509L);
+    private Path root;
+
+    @Before
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("tree-hasher");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private Path file(String name, int size) throws IOException {
+        byte[] content = new byte[size];
+        random.nextBytes(content);
+        return Files.write(root.resolve(name), content);
+    }
+
+    private static FileHasher plain() {
+        return new HashImplementation(HashAlgorithms.SHA_1, HashStrategy.HEAP);
+    }
+
+    private static String hash(Path file, int threads) {
+        try (TreeHasher hasher = new TreeHasher(HashAlgorithms.SHA_1, SEGMENT, threads)) {
+            return hasher.tree(plain()).hash(file.toString());
+        }
+    }
+
+    // Straightforward tree of the whole file in memory
+    private static String expected(Path file) throws IOException, NoSuchAlgorithmException {
+        byte[] content = Files.readAllBytes(file);
+        MessageDigest digest = MessageDigest.getInstance("SHA-1");
+        List<byte[]> level = new ArrayList<>();
+        for (int from = 0; from < content.length; from += SEGMENT) {
+            digest.update((byte) 0);
+            digest.update(content, from, Math.min(SEGMENT, content.length - from));
+            level.add(digest.digest());
+        }
+        while (level.size() > 1) {
+            List<byte[]> next = new ArrayList<>();
+            for (int i = 0; i + 1 < level.size(); i += 2) {
+                digest.update((byte) 1);
+                digest.update(level.get(i));
+                digest.update(level.get(i + 1));
+                next.add(digest.digest());
+            }
+            if (level.size() % 2 == 1) {
+                next.add(level.get(level.size() - 1));
+            }
+            level = next;
+        }
+        return "tree:" + SEGMENT + ":" + HexFormat.of().formatHex(level.get(0));
+    }
+
+    @Test
+    public void test1_smallFilesKeepPlainDigest() throws IOException {
+        for (int size : new int[]{0, 1, SEGMENT - 1, SEGMENT}) {
+            Path file = file("small" + size, size);
+            assertEquals(plain().hash(file.toString()), hash(file, 2));
+        }
+    }
+
+    @Test
+    public void test2_largeFiles() throws IOException, NoSuchAlgorithmException {
+        for (int size : new int[]{SEGMENT + 1, 2 * SEGMENT, 3 * SEGMENT, 7 * SEGMENT + 13, 64 * SEGMENT + 1}) {
+            Path file = file("large" + size, size);
+            String hash = hash(file, 2);
+            assertTrue(hash.startsWith("tree:" + SEGMENT + ":"));
+            assertEquals(expected(file), hash);
+        }
+    }
+
+    // Window of queued segments depends on the number of threads, the result must not
+    @Test
+    public void test3_independentOfThreads() throws IOException, NoSuchAlgorithmException {
+        Path file = file("large", 100 * SEGMENT + 17);
+        String expected = expected(file);
+        for (int threads : new int[]{1, 2, 3, 8, 32}) {
+            assertEquals("Threads: " + threads, expected, hash(file, threads));
+        }
+    }
+
+    @Test
+    public void test4_sharedBetweenHashers() throws IOException, NoSuchAlgorithmException {
+        Path first = file("first", 10 * SEGMENT + 1);
+        Path second = file("second", 5 * SEGMENT);
+        try (TreeHasher hasher = new TreeHasher(HashAlgorithms.SHA_1, SEGMENT, 4)) {
+            FileHasher a = hasher.tree(plain());
+            FileHasher b = hasher.tree(plain());
+            for (int i = 0; i < 3; i++) {
+                assertEquals(expected(first), a.hash(first.toString()));
+                assertEquals(expected(second), b.hash(second.toString()));
+            }
+        }
+    }
+
+    @Test
+    public void test5_missingFile() {
+        assertEquals(HashAlgorithms.SHA_1.getZeroHash(), hash(root.resolve("missing"), 2));
+    }
+
+    @Test
+    public void test6_configuration() {
+        try (TreeHasher hasher = new TreeHasher(HashAlgorithms.SHA_1, SEGMENT, 1)) {
+            assertEquals("tree:" + SEGMENT + ":" + HashAlgorithms.SHA_1, hasher.getConfiguration());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test7_wrongSegment() {
+        new TreeHasher(HashAlgorithms.SHA_1, 0, 1).close();
+    }
+}
@@ -0,0 +1,13 @@
+package info.kgeorgiy.ja.firef0xil.walk;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@FunctionalInterface
+public interface TreeWalker extends AutoCloseable {
+    void walk(Path start, java.nio.file.FileVisitor<? super Path> visitor) throws IOException;
+
+    @Override
+    default void close() {
+    }
+}
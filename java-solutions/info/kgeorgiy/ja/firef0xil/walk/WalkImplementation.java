@@ -2,23 +2,30 @@ package info.kgeorgiy.ja.firef0xil.walk;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitOption;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
-import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 public class WalkImplementation {
-
     public static void run(String[] args, boolean recursive) {
-        if (args == null || args.length != 2) {
-            System.err.println("Wrong usage: <path to input file> <path to output file>");
+        if (args == null || args.length < 2) {
+            System.err.println("Wrong usage: <path to input file> <path to output file> " + WalkOptions.USAGE);
         } else if (args[0] == null) {
             System.err.println("Null argument as input filename");
         } else if (args[1] == null) {
             System.err.println("Null argument as output filename");
         } else {
             try {
-                WalkImplementation.walk(args, MessageDigest.getInstance("SHA-1"), recursive);
+                WalkImplementation.walk(args, WalkOptions.parse(args, 2), recursive);
             } catch (Exception e) {
                 System.err.println(e.getMessage());
             }
@@ -41,9 +48,212 @@ public class WalkImplementation {
         }
     }
 
-    private static void walk(String[] args, MessageDigest messageDigest, boolean recursive) throws WalkException {
+    private static Supplier<FileHasher> hashProducers(WalkOptions options, Throttle throttle, WalkStats stats) {
+        return () -> new HashImplementation(
+                options.getAlgorithms(), options.getStrategy(), throttle, options.isDirectIo(), stats);
+    }
+
+    private static ArchiveHasher archiveHasher(WalkOptions options, Throttle throttle, WalkStats stats) {
+        return options.isArchives()
+                ? new ArchiveHasher(() -> new HashImplementation(
+                        options.getAlgorithms(), HashStrategy.HEAP, throttle, false, stats))
+                : null;
+    }
+
+    private static ScheduledExecutorService startProgress(WalkStats stats, long interval) {
+        if (interval == 0) {
+            return null;
+        }
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "walk-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> System.err.println(stats.progress()), interval, interval, TimeUnit.SECONDS);
+        return reporter;
+    }
+
+    private static void report(WalkStats stats, WalkOptions options) {
+        if (options.isSummary()) {
+            System.out.println(stats.summary());
+        }
+        if (options.getStats() != null) {
+            try {
+                stats.writeJson(getPath(options.getStats()));
+            } catch (IOException | WalkException e) {
+                System.err.println("Stats file is not available: " + e.getMessage());
+            }
+        }
+    }
+
+    private static Supplier<FileHasher> tree(Supplier<FileHasher> hashProducers, TreeHasher treeHasher) {
+        return treeHasher == null ? hashProducers : () -> treeHasher.tree(hashProducers.get());
+    }
+
+    private static Supplier<FileHasher> cached(Supplier<FileHasher> hashProducers, HashCache cache) {
+        return cache == null ? hashProducers : () -> cache.cached(hashProducers.get());
+    }
+
+    private static Supplier<FileHasher> shared(Supplier<FileHasher> hashProducers, InodeTable inodes) {
+        return inodes == null ? hashProducers : () -> inodes.shared(hashProducers.get());
+    }
+
+    private static HashPipeline createPipeline(
+            ManifestWriter writer,
+            Supplier<FileHasher> hashProducers,
+            Throttle throttle,
+            WalkStats stats,
+            WalkOptions options
+    ) {
+        if (options.isDuplicates()) {
+            return new DuplicateFinder(writer, hashProducers, options.getThreads(), throttle, stats);
+        } else if (options.isParallel()) {
+            return new ParallelHashPipeline(writer, hashProducers, options.getThreads(), options.getWindow());
+        } else {
+            return new SequentialHashPipeline(writer, hashProducers.get());
+        }
+    }
+
+    private static TreeWalker createTreeWalker(WalkOptions options) {
+        if (options.isParallelListing()) {
+            return new ParallelTreeWalker(options.getListers(), options.isFollowLinks());
+        } else {
+            Set<FileVisitOption> visitOptions = options.isFollowLinks()
+                    ? EnumSet.of(FileVisitOption.FOLLOW_LINKS)
+                    : EnumSet.noneOf(FileVisitOption.class);
+            return (start, visitor) -> Files.walkFileTree(start, visitOptions, Integer.MAX_VALUE, visitor);
+        }
+    }
+
+    private static HashPipeline walkInput(
+            BufferedReader input,
+            ManifestWriter writer,
+            Path directoriesPath,
+            Supplier<FileHasher> hashProducers,
+            Throttle throttle,
+            ArchiveHasher archiveHasher,
+            WalkStats stats,
+            WalkOptions options,
+            boolean recursive
+    ) throws WalkException, IOException {
+        if (directoriesPath == null) {
+            return walkInput(input, writer, hashProducers, throttle, archiveHasher, stats, options, recursive);
+        }
+        try (BufferedWriter directories = Files.newBufferedWriter(directoriesPath, StandardCharsets.UTF_8)) {
+            HashAlgorithms algorithms = options.getAlgorithms();
+            ManifestWriter directoryWriter = new Writer(directories, algorithms.getZeroHash());
+            ManifestWriter directoryHashWriter = new DirectoryHashWriter(writer, directoryWriter, algorithms);
+            return walkInput(input, directoryHashWriter, hashProducers, throttle, archiveHasher, stats, options, recursive);
+        }
+    }
+
+    private static HashPipeline walkInput(
+            BufferedReader input,
+            ManifestWriter writer,
+            Supplier<FileHasher> hashProducers,
+            Throttle throttle,
+            ArchiveHasher archiveHasher,
+            WalkStats stats,
+            WalkOptions options,
+            boolean recursive
+    ) throws WalkException, IOException {
+        try (HashPipeline pipeline = createPipeline(writer, hashProducers, throttle, stats, options);
+             TreeWalker treeWalker = createTreeWalker(options)) {
+            String rawFilePath;
+            FileVisitor fileVisitor = new FileVisitor(pipeline, archiveHasher, stats);
+            while ((rawFilePath = readLine(input)) != null) {
+                if (recursive) {
+                    try {
+                        treeWalker.walk(getPath(rawFilePath), fileVisitor);
+                    } catch (WalkException e) {
+                        stats.failure();
+                        pipeline.submitZero(rawFilePath);
+                    }
+                } else {
+                    stats.file();
+                    if (archiveHasher != null && ArchiveHasher.isArchive(rawFilePath)) {
+                        pipeline.submitArchive(rawFilePath, archiveHasher);
+                    } else {
+                        pipeline.submit(rawFilePath);
+                    }
+                }
+            }
+            return pipeline;
+        }
+    }
+
+    private static void watch(
+            BufferedReader input,
+            Path outputPath,
+            FileHasher hasher,
+            String zeroHash,
+            WalkOptions options
+    ) throws WalkException, IOException {
+        List<Path> roots = new ArrayList<>();
+        String rawFilePath;
+        while ((rawFilePath = readLine(input)) != null) {
+            roots.add(getPath(rawFilePath));
+        }
+        try (WatchDaemon daemon = new WatchDaemon(
+                outputPath,
+                roots,
+                hasher,
+                zeroHash,
+                options.getDebounce(),
+                TimeUnit.SECONDS.toMillis(options.getSnapshotInterval()))) {
+            daemon.run();
+        }
+    }
+
+    static void check(WalkOptions options, boolean recursive) throws WalkException {
+        if (options.isWatch() && options.isArchives()) {
+            throw new WalkException("Archive entries are not supported in watch mode");
+        }
+        if (options.isWatch() && options.isInodes()) {
+            throw new WalkException("Inode sharing is not supported in watch mode");
+        }
+        if (options.isWatch() && options.isDuplicates()) {
+            throw new WalkException("Duplicates mode is not supported in watch mode");
+        }
+        if (options.isWatch() && (options.isParallel() || options.isParallelListing())) {
+            throw new WalkException("Options '-threads' and '-listers' are not supported in watch mode");
+        }
+        if (options.isWatch() && options.isFollowLinks()) {
+            throw new WalkException("Following links is not supported in watch mode");
+        }
+        if (options.isWatch() && !recursive) {
+            throw new WalkException("Watch mode is supported by RecursiveWalk only");
+        }
+        if (options.isFsync() && !options.isAsyncOutput()) {
+            throw new WalkException("Option '-fsync' requires '-async-output'");
+        }
+        if (options.isAsyncOutput() && (options.isWatch() || options.isBinary())) {
+            throw new WalkException("Asynchronous output is not supported in watch mode and for binary format");
+        }
+        if (options.isBinary() && (options.isWatch() || options.isDuplicates())) {
+            throw new WalkException("Binary format is not supported in watch and duplicates modes");
+        }
+        if (options.isDuplicates() && !options.getAlgorithms().hasDigest()) {
+            throw new WalkException("Duplicates mode requires a message digest, checksums collide too often");
+        }
+        if (options.getDirectories() != null && (!recursive || options.isWatch() || options.isDuplicates())) {
+            throw new WalkException("Directory hashes are supported by RecursiveWalk without watch and duplicates modes only");
+        }
+    }
+
+    private static void walk(String[] args, WalkOptions options, boolean recursive) throws WalkException {
+        check(options, recursive);
+        Throttle throttle = options.isThrottled()
+                ? new Throttle(options.getThrottleBytes(), options.getThrottleFiles())
+                : null;
+        // Duplicates mode reports the bytes it has read from the stats
+        WalkStats stats = options.isInstrumented() || options.isDuplicates() ? new WalkStats() : WalkStats.DISABLED;
+        Supplier<FileHasher> hashProducers = hashProducers(options, throttle, stats);
+        ArchiveHasher archiveHasher = archiveHasher(options, throttle, stats);
         Path inputPath = getPath(args[0]);
         Path outputPath = getPath(args[1]);
+        Path cachePath = options.getCache() == null ? null : getPath(options.getCache());
+        Path directoriesPath = options.getDirectories() == null ? null : getPath(options.getDirectories());
         try {
             Path parent = outputPath.getParent();
             if (parent != null) {
@@ -52,23 +262,48 @@ public class WalkImplementation {
         } catch (IOException e) {
             throw new WalkException("Output directory is not available", e);
         }
+        HashAlgorithms algorithms = options.getAlgorithms();
+        ScheduledExecutorService progress = startProgress(stats, options.getProgressInterval());
         try (BufferedReader input = Files.newBufferedReader(inputPath, StandardCharsets.UTF_8)) {
-            try (BufferedWriter output = Files.newBufferedWriter(outputPath, StandardCharsets.UTF_8)) {
-                Writer writer = new Writer(output);
-                String rawFilePath;
-                HashImplementation hashProducer = new HashImplementation(messageDigest);
-                FileVisitor fileVisitor = new FileVisitor(writer, hashProducer);
-                while ((rawFilePath = readLine(input)) != null) {
-                    if (recursive) {
-                        try {
-                            Files.walkFileTree(getPath(rawFilePath), fileVisitor);
-                        } catch (WalkException e) {
-                            writer.writeZeroHash(rawFilePath);
+            try (TreeHasher treeHasher = options.isTree()
+                         ? new TreeHasher(algorithms, options.getTreeSegment(), options.getTreeThreads(), throttle, stats)
+                         : null) {
+                HashCache cache = cachePath == null ? null : HashCache.open(
+                        cachePath,
+                        treeHasher == null ? algorithms.toString() : treeHasher.getConfiguration(),
+                        algorithms.getZeroHash());
+                InodeTable inodes = options.isInodes() ? new InodeTable() : null;
+                hashProducers = shared(cached(tree(hashProducers, treeHasher), cache), inodes);
+                HashPipeline pipeline = null;
+                try (cache) {
+                    if (options.isWatch()) {
+                        watch(input, outputPath, hashProducers.get(), algorithms.getZeroHash(), options);
+                    } else if (options.isBinary()) {
+                        try (BinaryManifestWriter output = new BinaryManifestWriter(
+                                outputPath, algorithms, options.getTreeSegment(), stats)) {
+                            pipeline = walkInput(input, output, directoriesPath, hashProducers, throttle, archiveHasher, stats, options, recursive);
+                        }
+                    } else if (options.isAsyncOutput()) {
+                        try (AsyncWriter output = new AsyncWriter(
+                                outputPath, algorithms.getZeroHash(), options.isFsync(), stats)) {
+                            pipeline = walkInput(input, output, directoriesPath, hashProducers, throttle, archiveHasher, stats, options, recursive);
                         }
                     } else {
-                        writer.writeHash(rawFilePath, hashProducer.hash(rawFilePath));
+                        try (BufferedWriter output = Files.newBufferedWriter(outputPath, StandardCharsets.UTF_8)) {
+                            Writer writer = new Writer(output, algorithms.getZeroHash(), stats);
+                            pipeline = walkInput(input, writer, directoriesPath, hashProducers, throttle, archiveHasher, stats, options, recursive);
+                        }
                     }
                 }
+                if (pipeline instanceof DuplicateFinder finder) {
+                    System.out.println(finder.report());
+                }
+                if (inodes != null) {
+                    System.out.println(inodes.report());
+                }
+                if (cache != null) {
+                    System.out.println(cache.report());
+                }
             } catch (IOException e) {
                 System.err.println("Interaction error with output file");
             }
@@ -76,6 +311,11 @@ public class WalkImplementation {
             System.err.println("Input file not exists");
         } catch (IOException e) {
             System.err.println("Interaction error with input file");
+        } finally {
+            if (progress != null) {
+                progress.shutdownNow();
+            }
         }
+        report(stats, options);
     }
 }
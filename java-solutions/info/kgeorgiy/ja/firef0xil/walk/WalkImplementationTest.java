@@ -0,0 +1,59 @@
+package info.kgeorgiy.ja.firef0xil.walk;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class WalkImplementationTest {
+    private static void check(boolean recursive, String... args) throws WalkException {
+        WalkImplementation.check(WalkOptions.parse(args, 0), recursive);
+    }
+
+    private static void assertRejected(boolean recursive, String... args) {
+        try {
+            check(recursive, args);
+            fail("Accepted " + String.join(" ", args));
+        } catch (WalkException ignored) {
+        }
+    }
+
+    private static void assertRejected(String... args) {
+        assertRejected(true, args);
+    }
+
+    @Test
+    public void test1_watchAlone() throws WalkException {
+        check(true, "-watch", "-debounce", "100", "-snapshot", "10");
+        check(true, "-watch", "-cache", "cache", "-tree", "1024");
+    }
+
+    @Test
+    public void test2_watchRejectsDuplicates() {
+        assertRejected("-watch", "-duplicates");
+    }
+
+    @Test
+    public void test3_watchRejectsParallelism() {
+        assertRejected("-watch", "-threads", "4");
+        assertRejected("-watch", "-listers", "4");
+    }
+
+    @Test
+    public void test4_watchRejectsFollowLinks() {
+        assertRejected("-watch", "-follow-links");
+    }
+
+    @Test
+    public void test5_watchRejectsDirectories() {
+        assertRejected("-watch", "-directories", "directories");
+    }
+
+    @Test
+    public void test6_watchRejectsOtherOutputs() {
+        assertRejected("-watch", "-archives");
+        assertRejected("-watch", "-inodes");
+        assertRejected("-watch", "-async-output");
+        assertRejected("-watch", "-format", "binary");
+        assertRejected(false, "-watch");
+    }
+}
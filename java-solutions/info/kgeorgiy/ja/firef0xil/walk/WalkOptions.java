@@ -0,0 +1,233 @@
+package info.kgeorgiy.ja.firef0xil.walk;
+
+public class WalkOptions {
+    public final static String USAGE = "[-threads <number>] [-window <number>] [-listers <number>]"
+            + " [-strategy heap|direct|mapped|adaptive] [-cache <path to cache file>]"
+            + " [-digests <algorithm>[,<algorithm>...]] [-tree <segment bytes>] [-tree-threads <number>]"
+            + " [-throttle-bytes <bytes per second>] [-throttle-files <files per second>] [-direct-io]"
+            + " [-duplicates] [-inodes] [-follow-links] [-format text|binary]"
+            + " [-directories <path to directory hashes file>] [-archives]"
+            + " [-progress <seconds>] [-summary] [-stats <path to JSON stats file>] [-async-output [-fsync]]"
+            + " [-watch [-debounce <milliseconds>] [-snapshot <seconds>]]";
+
+    private int threads = 1;
+    private int window = 1024;
+    private int listers = 1;
+    private HashStrategy strategy = HashStrategy.ADAPTIVE;
+    private String cache = null;
+    private HashAlgorithms algorithms = HashAlgorithms.SHA_1;
+    private long treeSegment = 0;
+    private int treeThreads = Runtime.getRuntime().availableProcessors();
+    private long throttleBytes = 0;
+    private long throttleFiles = 0;
+    private boolean directIo = false;
+    private boolean duplicates = false;
+    private boolean inodes = false;
+    private boolean followLinks = false;
+    private boolean binary = false;
+    private String directories = null;
+    private boolean archives = false;
+    private long progressInterval = 0;
+    private boolean summary = false;
+    private String stats = null;
+    private boolean asyncOutput = false;
+    private boolean fsync = false;
+    private boolean watch = false;
+    private long debounce = 500;
+    private long snapshotInterval = 3600;
+
+    public static WalkOptions parse(String[] args, int from) throws WalkException {
+        WalkOptions options = new WalkOptions();
+        for (int i = from; i < args.length; i++) {
+            String option = args[i];
+            if (option == null) {
+                throw new WalkException("Null argument as option");
+            }
+            switch (option) {
+                case "-threads" -> options.threads = getPositive(args, ++i, option);
+                case "-window" -> options.window = getPositive(args, ++i, option);
+                case "-listers" -> options.listers = getPositive(args, ++i, option);
+                case "-strategy" -> options.strategy = HashStrategy.of(getValue(args, ++i, option));
+                case "-cache" -> options.cache = getValue(args, ++i, option);
+                case "-digests" -> options.algorithms = HashAlgorithms.parse(getValue(args, ++i, option));
+                case "-tree" -> options.treeSegment = getPositiveLong(args, ++i, option);
+                case "-tree-threads" -> options.treeThreads = getPositive(args, ++i, option);
+                case "-throttle-bytes" -> options.throttleBytes = getPositiveLong(args, ++i, option);
+                case "-throttle-files" -> options.throttleFiles = getPositiveLong(args, ++i, option);
+                case "-direct-io" -> options.directIo = true;
+                case "-duplicates" -> options.duplicates = true;
+                case "-inodes" -> options.inodes = true;
+                case "-follow-links" -> options.followLinks = true;
+                case "-archives" -> options.archives = true;
+                case "-progress" -> options.progressInterval = getPositiveLong(args, ++i, option);
+                case "-summary" -> options.summary = true;
+                case "-async-output" -> options.asyncOutput = true;
+                case "-fsync" -> options.fsync = true;
+                case "-stats" -> options.stats = getValue(args, ++i, option);
+                case "-directories" -> options.directories = getValue(args, ++i, option);
+                case "-format" -> options.binary = isBinary(getValue(args, ++i, option));
+                case "-watch" -> options.watch = true;
+                case "-debounce" -> options.debounce = getPositiveLong(args, ++i, option);
+                case "-snapshot" -> options.snapshotInterval = getPositiveLong(args, ++i, option);
+                default -> throw new WalkException("Unknown option '" + option + "'");
+            }
+        }
+        return options;
+    }
+
+    private static String getValue(String[] args, int index, String option) throws WalkException {
+        if (index >= args.length || args[index] == null) {
+            throw new WalkException("Missing value for option '" + option + "'");
+        }
+        return args[index];
+    }
+
+    private static boolean isBinary(String format) throws WalkException {
+        return switch (format) {
+            case "text" -> false;
+            case "binary" -> true;
+            default -> throw new WalkException("Unknown output format '" + format + "'");
+        };
+    }
+
+    private static int getPositive(String[] args, int index, String option) throws WalkException {
+        long result = getPositiveLong(args, index, option);
+        if (result > Integer.MAX_VALUE) {
+            throw new WalkException("Value of option '" + option + "' is too large");
+        }
+        return (int) result;
+    }
+
+    private static long getPositiveLong(String[] args, int index, String option) throws WalkException {
+        String value = getValue(args, index, option);
+        try {
+            long result = Long.parseLong(value);
+            if (result < 1) {
+                throw new WalkException("Value of option '" + option + "' should be positive number");
+            }
+            return result;
+        } catch (NumberFormatException e) {
+            throw new WalkException("Value of option '" + option + "' is not a number: " + value, e);
+        }
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    public int getListers() {
+        return listers;
+    }
+
+    public HashStrategy getStrategy() {
+        return strategy;
+    }
+
+    public String getCache() {
+        return cache;
+    }
+
+    public HashAlgorithms getAlgorithms() {
+        return algorithms;
+    }
+
+    public long getTreeSegment() {
+        return treeSegment;
+    }
+
+    public int getTreeThreads() {
+        return treeThreads;
+    }
+
+    public boolean isTree() {
+        return treeSegment > 0;
+    }
+
+    public long getThrottleBytes() {
+        return throttleBytes;
+    }
+
+    public long getThrottleFiles() {
+        return throttleFiles;
+    }
+
+    public boolean isThrottled() {
+        return throttleBytes > 0 || throttleFiles > 0;
+    }
+
+    public boolean isDirectIo() {
+        return directIo;
+    }
+
+    public boolean isDuplicates() {
+        return duplicates;
+    }
+
+    public boolean isInodes() {
+        return inodes;
+    }
+
+    public boolean isFollowLinks() {
+        return followLinks;
+    }
+
+    public String getDirectories() {
+        return directories;
+    }
+
+    public long getProgressInterval() {
+        return progressInterval;
+    }
+
+    public boolean isSummary() {
+        return summary;
+    }
+
+    public String getStats() {
+        return stats;
+    }
+
+    public boolean isAsyncOutput() {
+        return asyncOutput;
+    }
+
+    public boolean isFsync() {
+        return fsync;
+    }
+
+    public boolean isInstrumented() {
+        return progressInterval > 0 || summary || stats != null;
+    }
+
+    public boolean isArchives() {
+        return archives;
+    }
+
+    public boolean isBinary() {
+        return binary;
+    }
+
+    public boolean isWatch() {
+        return watch;
+    }
+
+    public long getDebounce() {
+        return debounce;
+    }
+
+    public long getSnapshotInterval() {
+        return snapshotInterval;
+    }
+
+    public boolean isParallel() {
+        return threads > 1;
+    }
+
+    public boolean isParallelListing() {
+        return listers > 1;
+    }
+}
@@ -0,0 +1,217 @@
+package info.kgeorgiy.ja.firef0xil.walk;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Latencies are kept in power-of-two nanosecond buckets, so percentiles are accurate within a factor of two
+public class WalkStats {
+    public final static WalkStats DISABLED = new WalkStats(false);
+
+    public enum Phase {
+        OPEN, READ, WRITE;
+
+        private String key() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final boolean enabled;
+    private final long startTime = System.nanoTime();
+    private final LongAdder files = new LongAdder();
+    private final LongAdder directories = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final Histogram[] histograms = new Histogram[Phase.values().length];
+
+    public WalkStats() {
+        this(true);
+    }
+
+    private WalkStats(boolean enabled) {
+        this.enabled = enabled;
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new Histogram();
+        }
+    }
+
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    public void record(Phase phase, long start) {
+        if (enabled) {
+            histograms[phase.ordinal()].record(System.nanoTime() - start);
+        }
+    }
+
+    public void record(Phase phase, long start, long end) {
+        if (enabled) {
+            histograms[phase.ordinal()].record(end - start);
+        }
+    }
+
+    public void file() {
+        if (enabled) {
+            files.increment();
+        }
+    }
+
+    public void directory() {
+        if (enabled) {
+            directories.increment();
+        }
+    }
+
+    public void failure() {
+        if (enabled) {
+            failures.increment();
+        }
+    }
+
+    public void bytes(long count) {
+        if (enabled) {
+            bytes.add(count);
+        }
+    }
+
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    public void written() {
+        if (enabled) {
+            written.increment();
+        }
+    }
+
+    private double seconds() {
+        return Math.max(System.nanoTime() - startTime, 1) / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+
+    public String progress() {
+        double seconds = seconds();
+        return String.format(Locale.ROOT,
+                "%.0fs: %d files, %d directories, %d failures, %.1f MiB hashed (%.1f MiB/s, %.0f files/s), %d written",
+                seconds, files.sum(), directories.sum(), failures.sum(),
+                bytes.sum() / 1048576.0, bytes.sum() / 1048576.0 / seconds, files.sum() / seconds, written.sum());
+    }
+
+    public String summary() {
+        StringBuilder result = new StringBuilder("Walk: ").append(progress());
+        for (Phase phase : Phase.values()) {
+            Histogram histogram = histograms[phase.ordinal()];
+            result.append(String.format(Locale.ROOT,
+                    "%n  %-5s count %d, mean %s, p50 %s, p90 %s, p99 %s, max %s",
+                    phase.key(), histogram.count(), duration(histogram.mean()),
+                    duration(histogram.percentile(0.5)), duration(histogram.percentile(0.9)),
+                    duration(histogram.percentile(0.99)), duration(histogram.max.get())));
+        }
+        return result.toString();
+    }
+
+    private static String duration(long nanos) {
+        if (nanos < 10_000) {
+            return nanos + "ns";
+        } else if (nanos < 10_000_000) {
+            return nanos / 1_000 + "us";
+        } else {
+            return nanos / 1_000_000 + "ms";
+        }
+    }
+
+    public String toJson() {
+        StringBuilder result = new StringBuilder("{");
+        result.append("\"elapsedNanos\":").append(System.nanoTime() - startTime)
+                .append(",\"files\":").append(files.sum())
+                .append(",\"directories\":").append(directories.sum())
+                .append(",\"failures\":").append(failures.sum())
+                .append(",\"bytes\":").append(bytes.sum())
+                .append(",\"written\":").append(written.sum())
+                .append(",\"latencies\":{");
+        for (Phase phase : Phase.values()) {
+            if (phase.ordinal() > 0) {
+                result.append(',');
+            }
+            result.append('"').append(phase.key()).append("\":");
+            histograms[phase.ordinal()].appendJson(result);
+        }
+        return result.append("}}").toString();
+    }
+
+    public void writeJson(Path file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(toJson());
+            writer.newLine();
+        }
+    }
+
+    private static class Histogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(Long.SIZE);
+        private final LongAdder total = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long nanos) {
+            long value = Math.max(nanos, 0);
+            buckets.incrementAndGet(Long.SIZE - 1 - Long.numberOfLeadingZeros(value | 1));
+            total.add(value);
+            max.accumulateAndGet(value, Math::max);
+        }
+
+        long count() {
+            long count = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                count += buckets.get(i);
+            }
+            return count;
+        }
+
+        long mean() {
+            long count = count();
+            return count == 0 ? 0 : total.sum() / count;
+        }
+
+        // Upper bound of the bucket holding the given quantile, capped by the observed maximum
+        long percentile(double quantile) {
+            long count = count();
+            long rank = (long) Math.ceil(quantile * count);
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= rank && seen > 0) {
+                    return Math.min((2L << i) - 1, max.get());
+                }
+            }
+            return 0;
+        }
+
+        void appendJson(StringBuilder result) {
+            result.append("{\"count\":").append(count())
+                    .append(",\"totalNanos\":").append(total.sum())
+                    .append(",\"maxNanos\":").append(max.get())
+                    .append(",\"p50Nanos\":").append(percentile(0.5))
+                    .append(",\"p90Nanos\":").append(percentile(0.9))
+                    .append(",\"p99Nanos\":").append(percentile(0.99))
+                    .append(",\"buckets\":[");
+            int last = buckets.length() - 1;
+            while (last > 0 && buckets.get(last) == 0) {
+                last--;
+            }
+            for (int i = 0; i <= last; i++) {
+                if (i > 0) {
+                    result.append(',');
+                }
+                result.append(buckets.get(i));
+            }
+            result.append("]}");
+        }
+    }
+}
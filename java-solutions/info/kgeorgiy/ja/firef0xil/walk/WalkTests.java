@@ -0,0 +1,30 @@
+package info.kgeorgiy.ja.firef0xil.walk;
+
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+
+public class WalkTests {
+    public static void main(String[] args) {
+        final Result result = new JUnitCore().run(
+                HashCacheTest.class,
+                TreeHasherTest.class,
+                DuplicateFinderTest.class,
+                BinaryManifestTest.class,
+                DirectoryHashWriterTest.class,
+                WalkImplementationTest.class,
+                WatchDaemonTest.class
+        );
+        if (result.wasSuccessful()) {
+            System.exit(0);
+            return;
+        }
+        result.getFailures().forEach(failure -> {
+            System.err.println("Test " + failure.getDescription().getMethodName() + " failed: " + failure.getMessage());
+            if (failure.getException() != null) {
+                failure.getException().printStackTrace();
+            }
+        });
+        System.exit(1);
+        throw new AssertionError("Exit");
+    }
+}
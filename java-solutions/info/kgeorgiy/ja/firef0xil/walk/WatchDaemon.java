@@ -0,0 +1,289 @@
+package info.kgeorgiy.ja.firef0xil.walk;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+// Rehashes paths once their events stay quiet for the debounce interval, appends every change
+// to <output>.delta and periodically rewrites the whole manifest, starting an empty delta after it
+public class WatchDaemon implements AutoCloseable {
+    private final Path output;
+    private final Path delta;
+    private final List<Path> roots;
+    private final FileHasher hasher;
+    private final String zeroHash;
+    private final long debounce;
+    private final long snapshotInterval;
+    private final WatchService watcher;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+    private final Map<Path, WatchKey> watched = new HashMap<>();
+    private final Set<Path> fileRoots = new HashSet<>();
+    private final Set<Path> partialDirectories = new HashSet<>();
+    private final Map<Path, Long> pending = new LinkedHashMap<>();
+    private NavigableMap<String, String> manifest = new TreeMap<>();
+    private Writer deltaWriter;
+    private BufferedWriter deltaOutput;
+
+    public WatchDaemon(
+            Path output,
+            List<Path> roots,
+            FileHasher hasher,
+            String zeroHash,
+            long debounce,
+            long snapshotInterval
+    ) throws IOException, WalkException {
+        this.output = output;
+        this.delta = output.resolveSibling(output.getFileName() + ".delta");
+        this.roots = roots;
+        this.hasher = hasher;
+        this.zeroHash = zeroHash;
+        this.debounce = debounce;
+        this.snapshotInterval = snapshotInterval;
+        this.watcher = fileSystem(roots).newWatchService();
+    }
+
+    // Watch keys can be registered with the watch service of their own file system only
+    private static FileSystem fileSystem(List<Path> roots) throws WalkException {
+        FileSystem fileSystem = roots.isEmpty() ? FileSystems.getDefault() : roots.get(0).getFileSystem();
+        for (Path root : roots) {
+            if (root.getFileSystem() != fileSystem) {
+                throw new WalkException("Watched paths should belong to the same file system, '" + root + "' does not");
+            }
+        }
+        return fileSystem;
+    }
+
+    public void run() throws IOException {
+        manifest = scan();
+        writeSnapshot();
+        long nextSnapshot = System.currentTimeMillis() + snapshotInterval;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                long now = System.currentTimeMillis();
+                long timeout = nextSnapshot - now;
+                for (long last : pending.values()) {
+                    timeout = Math.min(timeout, last + debounce - now);
+                }
+                WatchKey key = watcher.poll(Math.max(timeout, 1), TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    if (!collect(key)) {
+                        rescan();
+                    }
+                }
+                processQuiet();
+                if (System.currentTimeMillis() >= nextSnapshot) {
+                    writeSnapshot();
+                    nextSnapshot = System.currentTimeMillis() + snapshotInterval;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException ignored) {
+        }
+    }
+
+    private boolean collect(WatchKey key) {
+        Path dir = directories.get(key);
+        boolean consistent = true;
+        long now = System.currentTimeMillis();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                consistent = false;
+            } else if (dir != null) {
+                Path child = dir.resolve((Path) event.context());
+                if (!partialDirectories.contains(dir) || fileRoots.contains(child)) {
+                    pending.put(child, now);
+                }
+            }
+        }
+        if (!key.reset()) {
+            directories.remove(key);
+            watched.remove(dir, key);
+        }
+        return consistent;
+    }
+
+    private void processQuiet() throws IOException {
+        long now = System.currentTimeMillis();
+        boolean changed = false;
+        Iterator<Map.Entry<Path, Long>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, Long> entry = iterator.next();
+            if (entry.getValue() + debounce <= now) {
+                iterator.remove();
+                update(entry.getKey());
+                changed = true;
+            }
+        }
+        if (changed) {
+            deltaOutput.flush();
+        }
+    }
+
+    private void update(Path path) throws IOException {
+        NavigableMap<String, String> before = new TreeMap<>();
+        NavigableMap<String, String> after = new TreeMap<>();
+        if (!Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+            String name = path.toString();
+            before.putAll(under(manifest, path));
+            if (manifest.containsKey(name)) {
+                before.put(name, manifest.get(name));
+            }
+            if (Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+                after.put(name, hasher.hash(name));
+            }
+        } else if (isWatched(path)) {
+            // Changes of its files arrive through its own key, only subdirectories missed by the watch are new
+            try (DirectoryStream<Path> children = Files.newDirectoryStream(
+                    path, child -> Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS) && !isWatched(child))) {
+                for (Path child : children) {
+                    rewalk(child, before, after);
+                }
+            } catch (DirectoryIteratorException e) {
+                throw e.getCause();
+            }
+        } else {
+            rewalk(path, before, after);
+        }
+        apply(before, after);
+    }
+
+    private boolean isWatched(Path dir) {
+        WatchKey key = watched.get(dir);
+        return key != null && key.isValid();
+    }
+
+    private void rewalk(Path dir, Map<String, String> before, Map<String, String> after) throws IOException {
+        String name = dir.toString();
+        before.putAll(under(manifest, dir));
+        if (manifest.containsKey(name)) {
+            before.put(name, manifest.get(name));
+        }
+        walk(dir, after);
+    }
+
+    private static NavigableMap<String, String> under(NavigableMap<String, String> manifest, Path dir) {
+        String name = dir.toString();
+        String separator = dir.getFileSystem().getSeparator();
+        String prefix = name.endsWith(separator) ? name : name + separator;
+        return manifest.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    private void apply(Map<String, String> before, Map<String, String> after) throws IOException {
+        for (Map.Entry<String, String> entry : after.entrySet()) {
+            String old = before.get(entry.getKey());
+            if (old == null) {
+                deltaWriter.writeDelta("added", entry.getKey(), entry.getValue());
+            } else if (!old.equals(entry.getValue())) {
+                deltaWriter.writeDelta("changed", entry.getKey(), entry.getValue());
+            }
+        }
+        for (Map.Entry<String, String> entry : before.entrySet()) {
+            if (!after.containsKey(entry.getKey())) {
+                deltaWriter.writeDelta("removed", entry.getKey(), entry.getValue());
+                manifest.remove(entry.getKey());
+            }
+        }
+        manifest.putAll(after);
+    }
+
+    private void rescan() throws IOException {
+        pending.clear();
+        NavigableMap<String, String> fresh = scan();
+        apply(new TreeMap<>(manifest), fresh);
+        deltaOutput.flush();
+    }
+
+    private NavigableMap<String, String> scan() throws IOException {
+        NavigableMap<String, String> result = new TreeMap<>();
+        for (Path root : roots) {
+            if (Files.isDirectory(root, LinkOption.NOFOLLOW_LINKS)) {
+                walk(root, result);
+            } else {
+                Path parent = root.getParent() == null ? Path.of("") : root.getParent();
+                if (Files.isDirectory(parent)) {
+                    fileRoots.add(root);
+                    register(parent, true);
+                }
+                result.put(root.toString(), hasher.hash(root.toString()));
+            }
+        }
+        return result;
+    }
+
+    private void register(Path dir, boolean partial) throws IOException {
+        WatchKey key = dir.register(watcher, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+        boolean known = directories.put(key, dir) != null;
+        if (!partial) {
+            watched.put(dir, key);
+            partialDirectories.remove(dir);
+        } else if (!known) {
+            partialDirectories.add(dir);
+        }
+    }
+
+    private void walk(Path start, Map<String, String> result) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                try {
+                    register(dir, false);
+                } catch (IOException e) {
+                    System.err.println("Directory '" + dir + "' cannot be watched: " + e.getMessage());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                result.put(file.toString(), hasher.hash(file.toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                result.put(file.toString(), zeroHash);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void writeSnapshot() throws IOException {
+        Path temporary = output.resolveSibling(output.getFileName() + ".tmp");
+        try (BufferedWriter snapshot = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            Writer writer = new Writer(snapshot, zeroHash);
+            for (Map.Entry<String, String> entry : manifest.entrySet()) {
+                writer.writeHash(entry.getKey(), entry.getValue());
+            }
+        }
+        Files.move(temporary, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // The snapshot covers every change so far, including the ones made while the daemon was down
+        if (deltaOutput != null) {
+            deltaOutput.close();
+        }
+        deltaOutput = Files.newBufferedWriter(delta, StandardCharsets.UTF_8);
+        deltaWriter = new Writer(deltaOutput, zeroHash);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            watcher.close();
+        } finally {
+            if (deltaOutput != null) {
+                deltaOutput.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package info.kgeorgiy.ja.firef0xil.walk;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class WatchDaemonTest {
+    private final static String ZERO_HASH = HashAlgorithms.SHA_1.getZeroHash();
+    private final static long DEBOUNCE = 100;
+    private final static long TIMEOUT = 10_000;
+    private final static long NO_SNAPSHOTS = 3_600_000;
+
+    private final AtomicInteger hashed = new AtomicInteger();
+    private Path directory;
+    private Path root;
+    private Path output;
+    private Path delta;
+    private WatchDaemon daemon;
+    private Thread thread;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("watch-daemon");
+        root = Files.createDirectory(directory.resolve("root"));
+        output = directory.resolve("output");
+        delta = directory.resolve("output.delta");
+    }
+
+    @After
+    public void tearDown() throws IOException, InterruptedException {
+        stop();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private void start(long snapshotInterval) throws IOException, WalkException {
+        FileHasher hasher = new HashImplementation(HashAlgorithms.SHA_1, HashStrategy.HEAP);
+        daemon = new WatchDaemon(output, List.of(root), file -> {
+            hashed.incrementAndGet();
+            return hasher.hash(file);
+        }, ZERO_HASH, DEBOUNCE, snapshotInterval);
+        thread = new Thread(() -> {
+            try {
+                daemon.run();
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        });
+        thread.start();
+        await(() -> Files.exists(delta));
+    }
+
+    private void start() throws IOException, WalkException {
+        start(NO_SNAPSHOTS);
+    }
+
+    private void stop() throws IOException, InterruptedException {
+        if (daemon != null) {
+            thread.interrupt();
+            thread.join();
+            daemon.close();
+            daemon = null;
+        }
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Timed out");
+            }
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    private static List<String> lines(Path file) {
+        try {
+            return Files.readAllLines(file, StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return List.of();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static String hash(Path file) {
+        return new HashImplementation(HashAlgorithms.SHA_1, HashStrategy.HEAP).hash(file.toString());
+    }
+
+    private static String record(String kind, Path file, String hash) {
+        return kind + " " + hash + " " + file;
+    }
+
+    private static String line(Path file) {
+        return hash(file) + " " + file;
+    }
+
+    private void awaitDelta(String... records) {
+        await(() -> lines(delta).containsAll(List.of(records)));
+    }
+
+    private Path write(String name, String content) throws IOException {
+        Path file = root.resolve(name);
+        Files.createDirectories(file.getParent());
+        return Files.writeString(file, content);
+    }
+
+    @Test
+    public void test1_initialSnapshot() throws IOException, WalkException {
+        Path first = write("b/first", "first");
+        Path second = write("a", "second");
+        start();
+        assertEquals(List.of(line(second), line(first)), lines(output));
+        assertEquals(List.of(), lines(delta));
+    }
+
+    @Test
+    public void test2_addedChangedRemoved() throws IOException, WalkException {
+        start();
+        Path file = write("file", "added");
+        awaitDelta(record("added", file, hash(file)));
+        String added = hash(file);
+        Files.writeString(file, "changed");
+        awaitDelta(record("changed", file, hash(file)));
+        String changed = hash(file);
+        Files.delete(file);
+        awaitDelta(record("removed", file, changed));
+        assertNotEquals(added, changed);
+    }
+
+    @Test
+    public void test3_newNestedDirectory() throws IOException, WalkException {
+        start();
+        Path file = write("a/b/c/file", "nested");
+        awaitDelta(record("added", file, hash(file)));
+        Path next = write("a/b/c/next", "next");
+        awaitDelta(record("added", next, hash(next)));
+    }
+
+    @Test
+    public void test4_directoryReplacedByFile() throws IOException, WalkException {
+        Path inner = write("entry/inner", "inner");
+        String innerHash = hash(inner);
+        start();
+        Files.delete(inner);
+        Files.delete(root.resolve("entry"));
+        Path entry = write("entry", "file");
+        awaitDelta(record("removed", inner, innerHash), record("added", entry, hash(entry)));
+    }
+
+    @Test
+    public void test5_directoryEventsRehashOnlyNewFiles() throws IOException, WalkException {
+        for (int i = 0; i < 20; i++) {
+            write("large/file" + i, "content" + i);
+        }
+        start();
+        hashed.set(0);
+        Files.setLastModifiedTime(root.resolve("large"), FileTime.fromMillis(0));
+        Path file = write("large/new", "new");
+        awaitDelta(record("added", file, hash(file)));
+        assertEquals(1, hashed.get());
+    }
+
+    @Test
+    public void test6_snapshotStartsEmptyDelta() throws IOException, WalkException {
+        Path old = write("old", "old");
+        start(500);
+        Path file = write("file", "file");
+        await(() -> lines(output).contains(line(file)));
+        assertEquals(List.of(line(file), line(old)), lines(output));
+        await(() -> lines(delta).isEmpty());
+    }
+
+    @Test
+    public void test7_restartForgetsDelta() throws IOException, WalkException, InterruptedException {
+        start();
+        Path file = write("file", "file");
+        awaitDelta(record("added", file, hash(file)));
+        stop();
+        Files.delete(file);
+        start();
+        await(() -> lines(delta).isEmpty());
+        assertEquals(List.of(), lines(output));
+    }
+}
@@ -5,19 +5,50 @@ import java.io.IOException;
 
 import static info.kgeorgiy.ja.firef0xil.walk.HashImplementation.ZERO_HASH;
 
-public class Writer {
+public class Writer implements ManifestWriter {
     private final BufferedWriter writer;
+    private final String zeroHash;
+    private final WalkStats stats;
 
     public Writer(BufferedWriter writer) {
+        this(writer, ZERO_HASH);
+    }
+
+    public Writer(BufferedWriter writer, String zeroHash) {
+        this(writer, zeroHash, WalkStats.DISABLED);
+    }
+
+    public Writer(BufferedWriter writer, String zeroHash, WalkStats stats) {
         this.writer = writer;
+        this.zeroHash = zeroHash;
+        this.stats = stats;
     }
 
+    @Override
     public void writeHash(String file, String hash) throws IOException {
+        long start = stats.start();
         writer.write(hash + " " + file);
         writer.newLine();
+        stats.record(WalkStats.Phase.WRITE, start);
+        stats.written();
     }
 
+    @Override
     public void writeZeroHash(String file) throws IOException {
-        writeHash(file, ZERO_HASH);
+        writeHash(file, zeroHash);
+    }
+
+    public void writeDelta(String kind, String file, String hash) throws IOException {
+        writeHash(file, kind + " " + hash);
+    }
+
+    @Override
+    public void writeSeparator() throws IOException {
+        writer.newLine();
+    }
+
+    @Override
+    public String getZeroHash() {
+        return zeroHash;
     }
 }
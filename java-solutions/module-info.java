@@ -9,6 +9,7 @@ module info.kgeorgiy.ja.firef0xil.implementor {
     requires info.kgeorgiy.java.advanced.crawler;
     requires info.kgeorgiy.java.advanced.hello;
     requires java.rmi;
+    requires jdk.unsupported;
 
     exports info.kgeorgiy.ja.firef0xil.implementor;
     exports info.kgeorgiy.ja.firef0xil.bank;